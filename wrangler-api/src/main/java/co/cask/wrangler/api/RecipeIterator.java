@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+/**
+ * An iterator over the records produced by a {@link RecipePipeline}, the records being
+ * produced as they are pulled from the iterator.
+ *
+ * @param <T> type of the records iterated over.
+ */
+@PublicEvolving
+public interface RecipeIterator<T> {
+  /**
+   * Checks for more records, executing the recipe until a record is produced or the input is exhausted.
+   *
+   * @return true if there are more records.
+   * @throws RecipeException thrown when the execution of the recipe fails.
+   */
+  boolean hasNext() throws RecipeException;
+
+  /**
+   * Returns the next record.
+   *
+   * @return next record produced by the recipe.
+   * @throws RecipeException thrown when the execution of the recipe fails.
+   * @throws java.util.NoSuchElementException if there are no more records.
+   */
+  T next() throws RecipeException;
+}
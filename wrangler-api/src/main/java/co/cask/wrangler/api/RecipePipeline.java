@@ -20,6 +20,7 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.wrangler.api.annotations.PublicEvolving;
 
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -52,6 +53,19 @@ public interface RecipePipeline<I, O, E> extends Serializable {
    */
   List<I> execute(List<I> input) throws RecipeException;
 
+  /**
+   * Executes the pipeline on the input, streaming the records through the recipe.
+   *
+   * <p>Records are pulled from the input and passed through the recipe as the records
+   * returned are pulled, so that only the records being wrangled are held in memory.
+   * Records that error out are available through {@link #errors()} once the records
+   * returned are exhausted.</p>
+   *
+   * @param input Iterator over the input records of type I.
+   * @return Iterator over the parsed output records of type I.
+   */
+  RecipeIterator<I> execute(Iterator<I> input);
+
   /**
    * Returns records that are errored out.
    *
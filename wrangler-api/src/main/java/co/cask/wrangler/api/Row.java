@@ -16,38 +16,116 @@
 
 package co.cask.wrangler.api;
 
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.wrangler.api.annotations.PublicEvolving;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Row defines the schema and data on which the wrangler will operate upon.
+ *
+ * <p>The names of the columns are held in a header that is shared between rows having the same
+ * columns, such as the rows copied from one another. A row copies the header before modifying
+ * the columns, so sharing is not visible to the users of the row.</p>
+ *
+ * <p>Copies of a row share the values of the row as well until either of them is modified,
+ * which makes copying cheap for directives generating many rows from a single row.</p>
+ *
+ * <p>A row created from a {@link StructuredRecord} reads the values of the fields from the record
+ * when they are first accessed, so the fields that are not used are never copied into the row.</p>
  */
 @PublicEvolving
 public final class Row implements Serializable {
+  private static final long serialVersionUID = -6113040670211398942L;
   private static final Logger LOG = LoggerFactory.getLogger(Row.class);
 
-  // Name of the columns held by the row.
-  private List<String> columns = new ArrayList<>();
+  // Rows are serialized as lists of columns and values, which is how they have been persisted
+  // before headers were shared between rows.
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("columns", List.class),
+    new ObjectStreamField("values", List.class)
+  };
+
+  // Rows narrower than this are searched linearly, as building the index doesn't pay off.
+  private static final int INDEX_THRESHOLD = 8;
+
+  // Name of the columns held by the row, possibly shared with other rows.
+  private Header header;
 
-  // Values held by the row.
-  private List<Object> values = new ArrayList<>();
+  // Set when the header could be shared with other rows, it's then copied before being modified.
+  private boolean sharedHeader;
+
+  // Values held by the row, possibly shared with other rows.
+  private List<Object> values;
+
+  // Set when the values could be shared with other rows, they are then copied before being modified.
+  private boolean sharedValues;
+
+  // Record from which the values not read yet are read, null if all the values are held by the row.
+  private transient StructuredRecord source;
+
+  // Columns and unread values of the rows created from records of the same schema as the source.
+  private transient Layout layout;
 
   public Row() {
+    this.header = new Header(new ArrayList<String>());
+    this.values = new ArrayList<>();
   }
 
   /**
-   * Makes a copy of the row.
+   * Makes a copy of the row. The copy shares the columns and values of the row until either
+   * of the rows is modified.
    *
    * @param row to be copied to 'this' object.
    */
   public Row(Row row) {
-    this.values = new ArrayList<>(row.values);
-    this.columns = new ArrayList<>(row.columns);
+    this.header = row.share();
+    this.sharedHeader = true;
+    this.values = row.shareValues();
+    this.sharedValues = true;
+    this.source = row.source;
+    this.layout = row.layout;
+  }
+
+  /**
+   * Creates a row holding the fields of a record, in the order of the fields of the schema of the
+   * record. The values are read from the record when they are first accessed.
+   *
+   * @param record whose fields are held by the row.
+   */
+  public Row(StructuredRecord record) {
+    this(new Layout(record.getSchema()), record);
+  }
+
+  /**
+   * Creates a row holding the fields of a record, reusing the columns built for a row previously
+   * created from a record, if the records have the same schema. This avoids building the columns
+   * of the row for each of the records.
+   *
+   * @param previous row created from a record, possibly modified since.
+   * @param record whose fields are held by the row.
+   */
+  public Row(Row previous, StructuredRecord record) {
+    this(previous.layout != null && previous.layout.schema.equals(record.getSchema()) ?
+           previous.layout : new Layout(record.getSchema()), record);
+  }
+
+  private Row(Layout layout, StructuredRecord record) {
+    this.header = layout.header;
+    this.sharedHeader = true;
+    this.values = layout.values;
+    this.sharedValues = true;
+    this.source = record;
+    this.layout = layout;
   }
 
   /**
@@ -56,7 +134,8 @@ public final class Row implements Serializable {
    * @param columns to set in the row.
    */
   public Row(List<String> columns) {
-    this.columns = new ArrayList<>(columns);
+    this.header = new Header(new ArrayList<>(columns));
+    this.values = new ArrayList<>();
   }
 
   /**
@@ -66,9 +145,9 @@ public final class Row implements Serializable {
    * @param value for the column defined above.
    */
   public Row(String name, Object value) {
-    this.columns = new ArrayList<>();
+    this.header = new Header(new ArrayList<String>());
     this.values = new ArrayList<>();
-    this.columns.add(name);
+    this.header.names.add(name);
     this.values.add(value);
   }
 
@@ -79,7 +158,7 @@ public final class Row implements Serializable {
    * @return name of the column.
    */
   public String getColumn(int idx) {
-    return columns.get(idx);
+    return header.names.get(idx);
   }
 
   /**
@@ -89,7 +168,7 @@ public final class Row implements Serializable {
    * @param name of the column to be set at idx.
    */
   public void setColumn(int idx, String name) {
-    columns.set(idx, name);
+    writableHeader().set(idx, name);
   }
 
   /**
@@ -99,7 +178,11 @@ public final class Row implements Serializable {
    * @return value at index (idx).
    */
   public Object getValue(int idx) {
-    return values.get(idx);
+    Object value = values.get(idx);
+    if (value instanceof Unread) {
+      value = read(idx, (Unread) value);
+    }
+    return value;
   }
 
   /**
@@ -112,7 +195,7 @@ public final class Row implements Serializable {
     if (col != null && !col.isEmpty()) {
       int idx = find(col);
       if (idx != -1) {
-        return values.get(idx);
+        return getValue(idx);
       }
     }
     return null;
@@ -125,10 +208,44 @@ public final class Row implements Serializable {
    * @param value value to be updated at index (idx).
    */
   public Row setValue(int idx, Object value) {
-    values.set(idx, value);
+    writableValues().set(idx, value);
     return this;
   }
 
+  /**
+   * Copies a value of another row into this row, without reading it from the record the other
+   * row was created from when it's not read yet. The value is then read from that record when it's
+   * first accessed in this row, unless this row already reads values from another record, in which
+   * case the value is read before being copied.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param row holding the value to be copied.
+   * @param from index of the value in the other row.
+   */
+  public Row copyValue(int idx, Row row, int from) {
+    Object value = row.values.get(from);
+    if (value instanceof Unread) {
+      if (source == null || source == row.source) {
+        source = row.source;
+      } else {
+        value = row.read(from, (Unread) value);
+      }
+    }
+    writableValues().set(idx, value);
+    return this;
+  }
+
+  /**
+   * Checks if a value of the row is held by the row, as opposed to being still held by the
+   * record the row was created from only.
+   *
+   * @param idx of the value.
+   * @return false if the value is yet to be read from the record.
+   */
+  public boolean isRead(int idx) {
+    return !(values.get(idx) instanceof Unread);
+  }
+
   /**
    * Adds a value into row with name.
    *
@@ -136,8 +253,8 @@ public final class Row implements Serializable {
    * @param value to be added to row.
    */
   public Row add(String name, Object value) {
-    columns.add(name);
-    values.add(value);
+    writableHeader().add(name);
+    writableValues().add(value);
     return this;
   }
 
@@ -147,8 +264,8 @@ public final class Row implements Serializable {
    * @param idx for which the value and column are removed.
    */
   public Row remove(int idx) {
-    columns.remove(idx);
-    values.remove(idx);
+    writableHeader().remove(idx);
+    writableValues().remove(idx);
     return this;
   }
 
@@ -159,21 +276,139 @@ public final class Row implements Serializable {
    * @return null if not present, else the index at which the column is found.
    */
   public int find(String col) {
-    int idx = 0;
-    for (String name : columns) {
-      if (col.equalsIgnoreCase(name)) {
-        return idx;
-      }
-      idx++;
+    return header.find(col);
+  }
+
+  /**
+   * Finds a column index based on the name of the column, checking the position at which
+   * the column was found in a previous row first.
+   *
+   * <p>Rows passing through a directive generally share the same layout, so directives
+   * remember where a column was last found and pass it as the hint. The hint is only
+   * trusted after confirming that the column at that position has the name searched for,
+   * and that no column before it has that name too, otherwise the column is searched by name.
+   * The same column is found as by {@link #find(String)}.</p>
+   *
+   * @param col to be searched within the row.
+   * @param hint position at which the column is expected, -1 if not known.
+   * @return -1 if not present, else the index at which the column is found.
+   */
+  public int find(String col, int hint) {
+    List<String> names = header.names;
+    if (hint >= 0 && hint < names.size() && col.equalsIgnoreCase(names.get(hint)) && header.isFirst(col, hint)) {
+      return hint;
+    }
+    return header.find(col);
+  }
+
+  /**
+   * Finds the last column named exactly as given, checking the position at which the column
+   * was found in a previous row first.
+   *
+   * <p>Unlike {@link #find(String, int)}, the name is case-sensitive and the last of the columns
+   * sharing the name is found, which is the column holding a variable when the columns are set
+   * one after the other into the context of an expression. The hint is only trusted after
+   * confirming that the column at that position has the name and no column after it has it too.</p>
+   *
+   * @param col to be searched within the row.
+   * @param hint position at which the column is expected, -1 if not known.
+   * @return -1 if not present, else the index at which the column is found.
+   */
+  public int findLast(String col, int hint) {
+    List<String> names = header.names;
+    if (hint >= 0 && hint < names.size() && col.equals(names.get(hint)) && header.isLast(col, hint)) {
+      return hint;
+    }
+    return header.findLast(col);
+  }
+
+  /**
+   * Makes this row share the header of another row, if both the rows have the same columns.
+   * This is used to avoid holding a copy of the same column names for each of the rows
+   * generated from a recipe.
+   *
+   * @param row with which the header is to be shared.
+   * @return true if the rows share the header, false if the columns of the rows differ.
+   */
+  public boolean shareColumns(Row row) {
+    if (header == row.header) {
+      return true;
+    }
+    if (!header.names.equals(row.header.names)) {
+      return false;
     }
-    return -1;
+    header = row.share();
+    sharedHeader = true;
+    return true;
+  }
+
+  /**
+   * Marks the header of this row as shared, as it's about to be handed out to another row.
+   *
+   * @return header of this row.
+   */
+  private Header share() {
+    sharedHeader = true;
+    return header;
+  }
+
+  /**
+   * Marks the values of this row as shared, as they are about to be handed out to another row.
+   *
+   * @return values of this row.
+   */
+  private List<Object> shareValues() {
+    sharedValues = true;
+    return values;
+  }
+
+  /**
+   * Reads a value from the record the row was created from, keeping it in the row.
+   *
+   * @param idx of the value.
+   * @param unread field of the record holding the value.
+   * @return value read.
+   */
+  private Object read(int idx, Unread unread) {
+    Object value = source.get(unread.field);
+    writableValues().set(idx, value);
+    return value;
+  }
+
+  /**
+   * Returns the values for modification, copying them first if they could be shared with other rows.
+   *
+   * @return values owned solely by this row.
+   */
+  private List<Object> writableValues() {
+    if (sharedValues) {
+      // Room is left for a few columns, as rows are often extended after being copied.
+      List<Object> copy = new ArrayList<>(values.size() + 4);
+      copy.addAll(values);
+      values = copy;
+      sharedValues = false;
+    }
+    return values;
+  }
+
+  /**
+   * Returns the header for modification, copying it first if it could be shared with other rows.
+   *
+   * @return header owned solely by this row.
+   */
+  private Header writableHeader() {
+    if (sharedHeader) {
+      header = new Header(new ArrayList<>(header.names));
+      sharedHeader = false;
+    }
+    return header;
   }
 
   /**
    * @return  Length of the row.
    */
   public int length() {
-    return columns.size();
+    return header.names.size();
   }
 
   /**
@@ -182,8 +417,8 @@ public final class Row implements Serializable {
   public List<Pair<String, Object>> getFields() {
     List<Pair<String, Object>> v = new ArrayList<>();
     int i = 0;
-    for (String column : columns) {
-      v.add(new Pair<>(column, values.get(i)));
+    for (String column : header.names) {
+      v.add(new Pair<>(column, getValue(i)));
       ++i;
     }
     return v;
@@ -216,10 +451,270 @@ public final class Row implements Serializable {
     if (idx != -1) {
       setValue(idx, value);
     } else {
-      if (index < columns.size() && index < values.size()) {
-        columns.add(index, name);
-        values.add(index, value);
+      if (index < length() && index < values.size()) {
+        writableHeader().insert(index, name);
+        writableValues().add(index, value);
+      }
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("columns", header.names);
+    if (source != null) {
+      // Values not read yet are read before the row is written, as the record isn't written.
+      for (int i = 0; i < values.size(); ++i) {
+        getValue(i);
+      }
+    }
+    fields.put("values", values);
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    // Rows written from a shared header or shared values read back the same lists.
+    header = new Header((List<String>) fields.get("columns", null));
+    sharedHeader = true;
+    values = (List<Object>) fields.get("values", null);
+    sharedValues = true;
+  }
+
+  /**
+   * Marks a value that is yet to be read from the field of a record.
+   */
+  private static final class Unread {
+    private final String field;
+
+    private Unread(String field) {
+      this.field = field;
+    }
+  }
+
+  /**
+   * Columns and unread values of the rows created from records of a schema, shared by those rows.
+   */
+  private static final class Layout {
+    private final Schema schema;
+    private final Header header;
+    private final List<Object> values;
+
+    private Layout(Schema schema) {
+      List<Schema.Field> fields = schema.getFields();
+      List<String> names = new ArrayList<>(fields.size());
+      List<Object> unread = new ArrayList<>(fields.size());
+      for (Schema.Field field : fields) {
+        names.add(field.getName());
+        unread.add(new Unread(field.getName()));
+      }
+      this.schema = schema;
+      this.header = new Header(names);
+      this.values = unread;
+    }
+  }
+
+  /**
+   * Names of the columns of a row along with a case-insensitive index over the names.
+   */
+  private static final class Header {
+    private final List<String> names;
+
+    // Open addressing index from column name to (position + 1) of the column within the row,
+    // zero marking an empty slot. It's lazily built by find and is volatile as a header
+    // shared between rows could be searched from multiple threads.
+    private volatile int[] index;
+
+    // Whether some columns have the same name, as found when building the index. It's written
+    // before the index is, so it's up to date with the index read.
+    private boolean duplicates;
+
+    private Header(List<String> names) {
+      this.names = names;
+    }
+
+    private int find(String col) {
+      if (names.size() < INDEX_THRESHOLD) {
+        int idx = 0;
+        for (String name : names) {
+          if (col.equalsIgnoreCase(name)) {
+            return idx;
+          }
+          idx++;
+        }
+        return -1;
+      }
+
+      int[] slots = slots();
+      int mask = slots.length - 1;
+      int slot = hash(col) & mask;
+      while (slots[slot] != 0) {
+        int idx = slots[slot] - 1;
+        if (col.equalsIgnoreCase(names.get(idx))) {
+          return idx;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+
+    /**
+     * Checks if a column is the first of the columns having its name, which is the column
+     * {@link #find(String)} returns.
+     *
+     * @param col name of the column.
+     * @param idx position of the column, which has the name.
+     * @return true if no column before the position has the name.
+     */
+    private boolean isFirst(String col, int idx) {
+      if (names.size() < INDEX_THRESHOLD) {
+        for (int i = 0; i < idx; ++i) {
+          if (col.equalsIgnoreCase(names.get(i))) {
+            return false;
+          }
+        }
+        return true;
+      }
+      // Building the index finds whether some columns have the same name.
+      slots();
+      return !duplicates || find(col) == idx;
+    }
+
+    /**
+     * Finds the last column named exactly as given. Wide rows without columns sharing a name,
+     * ignoring the case, are looked up through the index.
+     */
+    private int findLast(String col) {
+      if (names.size() >= INDEX_THRESHOLD) {
+        slots();
+        if (!duplicates) {
+          int idx = find(col);
+          return idx != -1 && col.equals(names.get(idx)) ? idx : -1;
+        }
+      }
+      for (int idx = names.size() - 1; idx >= 0; --idx) {
+        if (col.equals(names.get(idx))) {
+          return idx;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Checks if a column is the last of the columns named exactly as given, which is the column
+     * {@link #findLast(String)} returns.
+     *
+     * @param col name of the column.
+     * @param idx position of the column, which has the name.
+     * @return true if no column after the position has the name.
+     */
+    private boolean isLast(String col, int idx) {
+      if (names.size() >= INDEX_THRESHOLD) {
+        // Building the index finds whether some columns have the same name.
+        slots();
+        if (!duplicates) {
+          return true;
+        }
+      }
+      for (int i = names.size() - 1; i > idx; --i) {
+        if (col.equals(names.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void add(String name) {
+      names.add(name);
+      int[] slots = index;
+      if (slots != null) {
+        if (names.size() * 2 > slots.length) {
+          index = null;
+        } else if (!index(slots, name, names.size() - 1)) {
+          duplicates = true;
+        }
+      }
+    }
+
+    private void set(int idx, String name) {
+      names.set(idx, name);
+      index = null;
+    }
+
+    private void insert(int idx, String name) {
+      names.add(idx, name);
+      index = null;
+    }
+
+    private void remove(int idx) {
+      names.remove(idx);
+      index = null;
+    }
+
+    /**
+     * @return column index, built if it's not built yet.
+     */
+    private int[] slots() {
+      int[] slots = index;
+      if (slots == null) {
+        slots = buildIndex();
+        index = slots;
+      }
+      return slots;
+    }
+
+    /**
+     * Builds the column index, sized to keep the load factor of the index at most half.
+     */
+    private int[] buildIndex() {
+      int[] slots = new int[Integer.highestOneBit(Math.max(names.size(), 1) * 4 - 1)];
+      boolean found = false;
+      for (int i = 0; i < names.size(); ++i) {
+        if (!index(slots, names.get(i), i)) {
+          found = true;
+        }
+      }
+      duplicates = found;
+      return slots;
+    }
+
+    /**
+     * Adds a column to the index, unless a column with the same name is already indexed, as
+     * {@link #find(String)} returns the first column matching the name.
+     *
+     * @param slots of the index.
+     * @param name of the column to be indexed.
+     * @param idx position of the column within the row.
+     * @return false if a column with the same name is already indexed.
+     */
+    private boolean index(int[] slots, String name, int idx) {
+      if (name == null) {
+        return true;
+      }
+      int mask = slots.length - 1;
+      int slot = hash(name) & mask;
+      while (slots[slot] != 0) {
+        if (name.equalsIgnoreCase(names.get(slots[slot] - 1))) {
+          return false;
+        }
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = idx + 1;
+      return true;
+    }
+
+    /**
+     * Computes a hash that is consistent with {@link String#equalsIgnoreCase(String)}.
+     *
+     * @param name to be hashed.
+     * @return case-insensitive hash of the name.
+     */
+    private static int hash(String name) {
+      int h = 0;
+      for (int i = 0; i < name.length(); ++i) {
+        h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
       }
+      return h ^ (h >>> 16);
     }
   }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+/**
+ * Implemented by directives whose results depend on the rows being processed in order by
+ * a single instance of the directive, such as directives treating the first row they see
+ * specially or modifying the {@link TransientStore} shared between rows. Directives using the
+ * resources provided by the {@link ExecutorContext}, such as datasets, or calling external
+ * services also require sequential execution, as those resources are bound to the thread
+ * executing the pipeline, such as the thread of a service request and its transaction.
+ *
+ * <p>A {@link RecipePipeline} executing rows in parallel doesn't parallelize a recipe having
+ * a directive that requires sequential execution.</p>
+ */
+@PublicEvolving
+public interface Sequential {
+  /**
+   * @return true if the rows have to be processed in order by a single instance of the directive.
+   */
+  boolean requiresSequentialExecution();
+}
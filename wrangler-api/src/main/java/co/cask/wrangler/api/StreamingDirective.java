@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.util.Iterator;
+
+/**
+ * A {@link Directive} that generates the rows for an input {@link Row} lazily.
+ *
+ * <p>Directives generating many rows from a single row, such as the ones separating the
+ * elements of an array into rows, implement this interface so that a {@link RecipePipeline}
+ * streaming rows can pull the generated rows through the rest of the recipe one at a time,
+ * instead of holding all of them in memory.</p>
+ */
+@PublicEvolving
+public interface StreamingDirective extends Directive {
+  /**
+   * Executes the directive on a single {@link Row}, returning the rows generated from it.
+   *
+   * <p>The rows are generated as the iterator is advanced, which happens only after the
+   * previously generated rows have passed through the rest of the recipe. The iterator
+   * returned must not throw any exceptions, any issues with the row are to be raised by
+   * this method.</p>
+   *
+   * @param row to be wrangled by this directive.
+   * @param context {@link ExecutorContext} passed to each directive.
+   * @return iterator over the wrangled rows.
+   */
+  Iterator<Row> stream(Row row, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException;
+}
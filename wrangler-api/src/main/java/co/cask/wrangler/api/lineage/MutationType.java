@@ -61,9 +61,14 @@ public enum MutationType {
   RENAME(4),
 
   /**
+   * When the values of a column are changed in place by the directive, this column is
+   * labeled as a MODIFY column.
    *
+   * <p><code>uppercase <column></code>. In this case since the values of the column are
+   * replaced with the upper case of the values, the column should be labeled as MODIFY.
+   * A column labeled as MODIFY is read as well, so it's not labeled as READ.</p>
    */
-  MODIY(5);
+  MODIFY(5);
 
   // Integer representation of the mutation.
   private final int type;
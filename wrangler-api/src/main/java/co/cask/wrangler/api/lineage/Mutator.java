@@ -1,8 +1,17 @@
 package co.cask.wrangler.api.lineage;
 
 /**
- * Class description here.
+ * A directive implementing <code>Mutator</code> declares the columns it reads, adds, drops,
+ * renames or modifies, as defined by {@link MutationType}.
+ *
+ * <p>The declaration must cover every column the directive touches, as it's used to
+ * skip directives whose results are never used. A directive that can't tell which
+ * columns it touches returns null.</p>
  */
 public interface Mutator {
+
+  /**
+   * @return mutations applied by the directive, null if they can't be determined.
+   */
   MutationDefinition lineage();
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link Row}.
+ */
+public class RowTest {
+
+  private static Row wideRow(int columns) {
+    Row row = new Row();
+    for (int i = 0; i < columns; ++i) {
+      row.add("Column_" + i, i);
+    }
+    return row;
+  }
+
+  @Test
+  public void testFindOnWideRow() throws Exception {
+    Row row = wideRow(150);
+    for (int i = 0; i < 150; ++i) {
+      Assert.assertEquals(i, row.find("column_" + i));
+      Assert.assertEquals(i, row.find("COLUMN_" + i));
+      Assert.assertEquals(i, row.getValue("Column_" + i));
+    }
+    Assert.assertEquals(-1, row.find("column_150"));
+  }
+
+  @Test
+  public void testFindAfterMutations() throws Exception {
+    Row row = wideRow(20);
+    Assert.assertEquals(5, row.find("column_5"));
+
+    // Adding keeps the index up to date.
+    row.add("new", "value");
+    Assert.assertEquals(20, row.find("NEW"));
+
+    // Duplicate names resolve to the first column.
+    row.add("column_3", "duplicate");
+    Assert.assertEquals(3, row.find("column_3"));
+
+    // Removing shifts the columns after the one removed.
+    row.remove(0);
+    Assert.assertEquals(-1, row.find("column_0"));
+    Assert.assertEquals(4, row.find("column_5"));
+    Assert.assertEquals(19, row.find("new"));
+
+    // Renaming a column.
+    row.setColumn(4, "renamed");
+    Assert.assertEquals(-1, row.find("column_5"));
+    Assert.assertEquals(4, row.find("renamed"));
+
+    // Inserting a column in the middle.
+    row.addOrSetAtIndex(1, "inserted", "value");
+    Assert.assertEquals(1, row.find("inserted"));
+    Assert.assertEquals(5, row.find("renamed"));
+    Assert.assertEquals(20, row.find("new"));
+
+    // Adding enough columns to outgrow the index.
+    for (int i = 0; i < 100; ++i) {
+      row.add("more_" + i, i);
+    }
+    for (int i = 0; i < 100; ++i) {
+      Assert.assertEquals(i, row.getValue("MORE_" + i));
+    }
+  }
+
+  @Test
+  public void testCopiedRowIsIndependent() throws Exception {
+    Row row = wideRow(20);
+    Assert.assertEquals(10, row.find("column_10"));
+    Row copy = new Row(row);
+    copy.remove(0);
+    Assert.assertEquals(10, row.find("column_10"));
+    Assert.assertEquals(9, copy.find("column_10"));
+  }
+
+  @Test
+  public void testFindWithHint() throws Exception {
+    Row row = new Row("a", 1).add("b", 2).add("c", 3);
+    Assert.assertEquals(1, row.find("B", 1));
+    Assert.assertEquals(2, row.find("c", 1));
+    Assert.assertEquals(0, row.find("a", 5));
+    Assert.assertEquals(-1, row.find("d", -1));
+    Assert.assertEquals(-1, row.find("d", 2));
+  }
+
+  @Test
+  public void testFindWithHintOnDuplicateColumns() throws Exception {
+    Row row = new Row("a", 1).add("b", 2).add("A", 3);
+    Assert.assertEquals(0, row.find("a", 2));
+    Assert.assertEquals(0, row.find("a", 0));
+    Assert.assertEquals(1, row.find("b", 1));
+
+    Row wide = wideRow(20);
+    Assert.assertEquals(19, wide.find("column_19", 19));
+    wide.add("column_5", "duplicate");
+    Assert.assertEquals(5, wide.find("column_5", 20));
+    Assert.assertEquals(5, wide.find("column_5", 5));
+    Assert.assertEquals(6, wide.find("column_6", 6));
+
+    // Rows sharing the columns of a row with duplicates.
+    Row copy = new Row(wide);
+    Assert.assertEquals(5, copy.find("COLUMN_5", 20));
+    copy.remove(5);
+    Assert.assertEquals(19, copy.find("column_5", 19));
+  }
+
+  @Test
+  public void testFindLast() throws Exception {
+    Row row = new Row("a", 1).add("b", 2).add("A", 3).add("a", 4);
+    Assert.assertEquals(3, row.findLast("a", -1));
+    Assert.assertEquals(3, row.findLast("a", 0));
+    Assert.assertEquals(2, row.findLast("A", 3));
+    Assert.assertEquals(-1, row.findLast("B", 1));
+    Assert.assertEquals(1, row.findLast("b", 5));
+
+    Row wide = wideRow(20);
+    Assert.assertEquals(-1, wide.findLast("column_5", 5));
+    Assert.assertEquals(5, wide.findLast("Column_5", -1));
+    Assert.assertEquals(5, wide.findLast("Column_5", 5));
+    wide.add("column_5", "other").add("Column_5", "duplicate");
+    Assert.assertEquals(21, wide.findLast("Column_5", 5));
+    Assert.assertEquals(21, wide.findLast("Column_5", 21));
+    Assert.assertEquals(20, wide.findLast("column_5", -1));
+    Assert.assertEquals(6, wide.findLast("Column_6", 6));
+  }
+
+  @Test
+  public void testSharedColumnsAreCopiedOnWrite() throws Exception {
+    Row row = wideRow(20);
+    Row copy = new Row(row);
+    copy.setColumn(0, "renamed");
+    copy.add("added", 1);
+    Assert.assertEquals("Column_0", row.getColumn(0));
+    Assert.assertEquals(20, row.length());
+    Assert.assertEquals(-1, row.find("added"));
+    Assert.assertEquals("renamed", copy.getColumn(0));
+    Assert.assertEquals(21, copy.length());
+
+    // Modifying the source row doesn't affect rows copied from it.
+    Row other = new Row(row);
+    row.remove(1);
+    Assert.assertEquals("Column_1", other.getColumn(1));
+    Assert.assertEquals(1, other.find("column_1"));
+  }
+
+  @Test
+  public void testSharedValuesAreCopiedOnWrite() throws Exception {
+    Row row = new Row("a", 1).add("b", 2);
+    Row first = new Row(row);
+    Row second = new Row(row);
+    first.setValue(0, 10);
+    second.add("c", 3);
+    row.remove(1);
+
+    Assert.assertEquals(1, row.length());
+    Assert.assertEquals(1, row.getValue("a"));
+    Assert.assertEquals(10, first.getValue("a"));
+    Assert.assertEquals(2, first.getValue("b"));
+    Assert.assertEquals(1, second.getValue("a"));
+    Assert.assertEquals(3, second.getValue("c"));
+  }
+
+  @Test
+  public void testShareColumns() throws Exception {
+    Row first = new Row("a", 1).add("b", 2);
+    Row second = new Row("a", 3).add("b", 4);
+    Row third = new Row("a", 5).add("c", 6);
+    Assert.assertTrue(second.shareColumns(first));
+    Assert.assertFalse(third.shareColumns(first));
+
+    second.setColumn(1, "d");
+    Assert.assertEquals("b", first.getColumn(1));
+    Assert.assertEquals("d", second.getColumn(1));
+    Assert.assertEquals(4, second.getValue("d"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSerialization() throws Exception {
+    Row first = new Row("a", 1).add("b", "x");
+    Row second = new Row(first);
+    second.setValue(0, 2);
+    List<Row> rows = new ArrayList<>(Arrays.asList(first, second));
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bos);
+    out.writeObject(rows);
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    List<Row> read = (List<Row>) in.readObject();
+
+    Assert.assertEquals(2, read.size());
+    Assert.assertEquals(1, read.get(0).getValue("a"));
+    Assert.assertEquals(2, read.get(1).getValue("A"));
+    Assert.assertEquals("x", read.get(1).getValue("b"));
+
+    // Rows read back with the same columns don't affect each other.
+    read.get(0).add("c", 3);
+    Assert.assertEquals(2, read.get(1).length());
+  }
+
+  @Test
+  public void testRowFromRecord() throws Exception {
+    Schema schema = Schema.recordOf("input",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    StructuredRecord first = StructuredRecord.builder(schema).set("a", 1).set("b", "x").build();
+    StructuredRecord second = StructuredRecord.builder(schema).set("a", 2).set("b", "y").build();
+
+    Row row = new Row(first);
+    Assert.assertEquals(2, row.length());
+    Assert.assertEquals("a", row.getColumn(0));
+    Assert.assertEquals(1, row.getValue("A"));
+
+    // Values are read from the record they were created from, even after columns are moved.
+    Row copy = new Row(row);
+    copy.remove(0);
+    copy.add("c", 3);
+    Assert.assertEquals("x", copy.getValue(0));
+    Assert.assertEquals("x", row.getValue("b"));
+
+    // Rows created from records of the same schema reuse the columns, not the values.
+    Row next = new Row(row, second);
+    Assert.assertEquals(2, next.getValue("a"));
+    Assert.assertEquals("y", next.getFields().get(1).getSecond());
+    next.setColumn(0, "renamed");
+    Assert.assertEquals("a", new Row(next, first).getColumn(0));
+  }
+
+  @Test
+  public void testCopiedValuesStayUnread() throws Exception {
+    Schema schema = Schema.recordOf("input",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    Row row = new Row(StructuredRecord.builder(schema).set("a", 1).set("b", "x").build());
+    Row other = new Row(StructuredRecord.builder(schema).set("a", 2).set("b", "y").build());
+
+    Row copy = new Row("b", null).add("a", null);
+    copy.copyValue(0, row, 1);
+    copy.copyValue(1, row, 0);
+    Assert.assertFalse(row.isRead(0));
+    Assert.assertFalse(copy.isRead(0));
+    Assert.assertFalse(copy.isRead(1));
+    Assert.assertEquals("x", copy.getValue("b"));
+    Assert.assertTrue(copy.isRead(0));
+    Assert.assertFalse(copy.isRead(1));
+
+    // Values of a row created from another record are read before being copied.
+    copy.copyValue(0, other, 1);
+    Assert.assertTrue(copy.isRead(0));
+    Assert.assertTrue(other.isRead(1));
+    Assert.assertEquals("y", copy.getValue(0));
+    Assert.assertEquals(1, copy.getValue(1));
+  }
+
+  @Test
+  public void testSerializationOfRowFromRecord() throws Exception {
+    Schema schema = Schema.recordOf("input",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    Row row = new Row(StructuredRecord.builder(schema).set("a", 1).set("b", "x").build());
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bos);
+    out.writeObject(row);
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    Row read = (Row) in.readObject();
+
+    Assert.assertEquals(1, read.getValue("a"));
+    Assert.assertEquals("x", read.getValue("b"));
+  }
+
+  /**
+   * Compares the indexed lookup against the linear scan it replaced on wide rows.
+   */
+  @Ignore
+  @Test
+  public void testLookupPerformance() throws Exception {
+    int columns = 150;
+    int iterations = 200000;
+    Row row = wideRow(columns);
+    String[] names = new String[columns];
+    for (int i = 0; i < columns; ++i) {
+      names[i] = "column_" + i;
+    }
+
+    long sum = 0;
+    long start = System.nanoTime();
+    for (int k = 0; k < iterations; ++k) {
+      for (String name : names) {
+        sum += scan(row, name);
+      }
+    }
+    long scan = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int k = 0; k < iterations; ++k) {
+      for (String name : names) {
+        sum -= row.find(name);
+      }
+    }
+    long indexed = System.nanoTime() - start;
+
+    Assert.assertEquals(0, sum);
+    System.out.println(String.format("Linear scan : %.2f ns/lookup", (double) scan / (iterations * columns)));
+    System.out.println(String.format("Indexed     : %.2f ns/lookup", (double) indexed / (iterations * columns)));
+  }
+
+  /**
+   * Compares copying rows eagerly, as fan-out directives did before rows were copied on write,
+   * against copy-on-write copies, exploding a row into rows differing by a single value.
+   */
+  @Ignore
+  @Test
+  public void testFanOutPerformance() throws Exception {
+    int columns = 30;
+    int elements = 500;
+    int iterations = 2000;
+    Row row = wideRow(columns);
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    for (int round = 0; round < 2; ++round) {
+      long bytes = bean.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+      long sum = 0;
+      for (int k = 0; k < iterations; ++k) {
+        for (int i = 0; i < elements; ++i) {
+          Row r = new Row();
+          for (int j = 0; j < row.length(); ++j) {
+            r.add(row.getColumn(j), row.getValue(j));
+          }
+          r.setValue(0, i);
+          sum += r.length();
+        }
+      }
+      long eagerTime = System.nanoTime() - start;
+      long eagerBytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+      bytes = bean.getThreadAllocatedBytes(thread);
+      start = System.nanoTime();
+      for (int k = 0; k < iterations; ++k) {
+        for (int i = 0; i < elements; ++i) {
+          Row r = new Row(row);
+          r.setValue(0, i);
+          sum -= r.length();
+        }
+      }
+      long cowTime = System.nanoTime() - start;
+      long cowBytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+      Assert.assertEquals(0, sum);
+      long rows = (long) iterations * elements;
+      System.out.println(String.format("Eager copy     : %.2f ns/row, %d bytes/row",
+                                       (double) eagerTime / rows, eagerBytes / rows));
+      System.out.println(String.format("Copy-on-write  : %.2f ns/row, %d bytes/row",
+                                       (double) cowTime / rows, cowBytes / rows));
+    }
+  }
+
+  private static int scan(Row row, String col) {
+    for (int i = 0; i < row.length(); ++i) {
+      if (col.equalsIgnoreCase(row.getColumn(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -24,31 +24,81 @@ import co.cask.functions.GeoFences;
 import co.cask.functions.Global;
 import co.cask.functions.JSON;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlScript;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Collection of registered functions for jexl context.
+ *
+ * <p>A single {@link JexlEngine} is shared by all the directives and preconditions of the
+ * process, along with its introspection cache. Scripts compiled through {@link #compile(String)}
+ * are cached by the text of the expression, as the same recipes are compiled for each task and
+ * for each request of the service. Both the engine and the compiled scripts are thread safe.</p>
  */
 public final class JexlHelper {
+  // Maximum number of compiled scripts kept in the cache.
+  private static final int SCRIPT_CACHE_SIZE = 1024;
+
+  private static final Cache<String, JexlScript> SCRIPTS = CacheBuilder.newBuilder()
+    .maximumSize(SCRIPT_CACHE_SIZE)
+    .recordStats()
+    .build();
 
   /**
-   * @return configured {@link JexlEngine}
+   * Holds the engine, which is created when first used.
    */
-  public static JexlEngine getEngine() {
-    return new JexlBuilder()
+  private static final class EngineHolder {
+    private static final JexlEngine ENGINE = new JexlBuilder()
       .namespaces(getRegisteredFunctions())
       .silent(false)
-      .cache(10)
       .strict(true)
       .create();
   }
 
+  /**
+   * @return configured {@link JexlEngine}, shared across the process.
+   */
+  public static JexlEngine getEngine() {
+    return EngineHolder.ENGINE;
+  }
+
+  /**
+   * Compiles an expression into a script of the shared engine, reusing the script compiled
+   * previously for the same expression, if it's still cached.
+   *
+   * @param expression to be compiled.
+   * @return script of the expression.
+   * @throws org.apache.commons.jexl3.JexlException if the expression is not valid.
+   */
+  public static JexlScript compile(String expression) {
+    JexlScript script = SCRIPTS.getIfPresent(expression);
+    if (script == null) {
+      // Scripts compiled concurrently for the same expression are equivalent, either can be kept.
+      script = getEngine().createScript(expression);
+      SCRIPTS.put(expression, script);
+    }
+    return script;
+  }
+
+  /**
+   * @return statistics of the cache of compiled scripts, such as its hit and miss counts.
+   */
+  public static CacheStats getScriptCacheStats() {
+    return SCRIPTS.stats();
+  }
+
   /**
    * @return List of registered functions.
    */
@@ -67,4 +117,28 @@ public final class JexlHelper {
     functions.put("geo", GeoFences.class);
     return functions;
   }
+
+  /**
+   * Lists the names of the variables read by a script, which are the columns read by the
+   * directives evaluating the script on rows. Dotted names are listed along with each of their
+   * prefixes, as they are looked up as a whole when there is no variable named by the first part.
+   *
+   * @param script to be inspected.
+   * @return names of the variables read, null if the script can read any column through 'this'.
+   */
+  public static Set<String> getVariables(JexlScript script) {
+    Set<String> names = new LinkedHashSet<>();
+    for (List<String> variable : script.getVariables()) {
+      if ("this".equals(variable.get(0))) {
+        return null;
+      }
+      StringBuilder name = new StringBuilder(variable.get(0));
+      names.add(name.toString());
+      for (int i = 1; i < variable.size(); ++i) {
+        name.append('.').append(variable.get(i));
+        names.add(name.toString());
+      }
+    }
+    return names;
+  }
 }
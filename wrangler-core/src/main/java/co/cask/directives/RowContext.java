@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.directives;
+
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import org.apache.commons.jexl3.JexlContext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link JexlContext} reading the variables of a script from the columns of a row, instead of
+ * copying all the columns of the row into a context. Only the columns the script reads are
+ * looked up, and the position at which each of the variables of the script was found is
+ * remembered, as the rows evaluated mostly have the same columns.
+ *
+ * <p>A variable is resolved, in order, from the variables set by the script, the variables of
+ * the {@link TransientStore} if any, the columns of the row, <code>this</code> being the row
+ * itself, and finally the properties of the pipeline if any. The properties are never modified.</p>
+ *
+ * <p>Variables set by the script are held by the context, not written to the row, and are
+ * cleared when the context is reset to the next row. A context is meant to be reused for all
+ * the rows a script is evaluated on, by a single thread.</p>
+ */
+public final class RowContext implements JexlContext {
+  // Position at which each of the variables of the script was last found, by name.
+  private final Map<String, Integer> slots = new HashMap<>();
+
+  // Variables set for the current row, which take precedence over the columns of the row.
+  private final Map<String, Object> variables = new HashMap<>();
+
+  // Properties of the pipeline, read when a variable is neither set nor a column.
+  private final Map<String, ?> properties;
+
+  // Row on which the script is evaluated.
+  private Row row;
+
+  // Variables set by the directives for the record being processed.
+  private TransientStore store;
+
+  /**
+   * Creates a context for a script reading the given variables.
+   *
+   * @param names of the variables read by the script, see {@link JexlHelper#getVariables}, null
+   *              if not known, in which case the columns are looked up by name only.
+   */
+  public RowContext(@Nullable Collection<String> names) {
+    this(names, null);
+  }
+
+  /**
+   * Creates a context for a script reading the given variables, falling back to the properties
+   * of the pipeline for the variables that are not columns of the row.
+   *
+   * @param names of the variables read by the script, see {@link JexlHelper#getVariables}, null
+   *              if not known, in which case the columns are looked up by name only.
+   * @param properties of the pipeline, null if there are none.
+   */
+  public RowContext(@Nullable Collection<String> names, @Nullable Map<String, ?> properties) {
+    if (names != null) {
+      for (String name : names) {
+        slots.put(name, -1);
+      }
+    }
+    this.properties = properties;
+  }
+
+  /**
+   * Resets the context for evaluating the script on a row.
+   *
+   * @param row on which the script is evaluated.
+   * @return this context.
+   */
+  public RowContext reset(Row row) {
+    return reset(row, null);
+  }
+
+  /**
+   * Resets the context for evaluating the script on a row, along with the variables set by the
+   * directives for the record the row comes from.
+   *
+   * @param row on which the script is evaluated.
+   * @param store of the variables set by the directives, null if there is none.
+   * @return this context.
+   */
+  public RowContext reset(Row row, @Nullable TransientStore store) {
+    this.row = row;
+    this.store = store;
+    if (!variables.isEmpty()) {
+      variables.clear();
+    }
+    return this;
+  }
+
+  @Override
+  public Object get(String name) {
+    if (variables.containsKey(name)) {
+      return variables.get(name);
+    }
+    if (isTransient(name)) {
+      return store.get(name);
+    }
+    int idx = find(name);
+    if (idx != -1) {
+      return row.getValue(idx);
+    }
+    if ("this".equals(name)) {
+      return row;
+    }
+    return properties == null ? null : properties.get(name);
+  }
+
+  @Override
+  public void set(String name, Object value) {
+    variables.put(name, value);
+  }
+
+  @Override
+  public boolean has(String name) {
+    return variables.containsKey(name) || isTransient(name) || find(name) != -1
+      || ("this".equals(name) && row != null) || (properties != null && properties.containsKey(name));
+  }
+
+  private boolean isTransient(String name) {
+    if (store == null) {
+      return false;
+    }
+    Set<String> names = store.getVariables();
+    return !names.isEmpty() && names.contains(name);
+  }
+
+  /**
+   * Finds the column of the row holding a variable. Columns are matched by their exact name and,
+   * as when the columns are set one after the other into a context, the last of the columns
+   * sharing a name holds the variable, see {@link Row#findLast(String, int)}.
+   *
+   * @param name of the variable.
+   * @return index of the column, -1 if the row has no such column.
+   */
+  private int find(String name) {
+    if (row == null || name == null) {
+      return -1;
+    }
+    Integer slot = slots.get(name);
+    int idx = row.findLast(name, slot == null ? -1 : slot);
+    if (slot != null && idx != slot) {
+      slots.put(name, idx);
+    }
+    return idx;
+  }
+}
@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
@@ -27,17 +28,16 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.api.Sequential;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -48,14 +48,16 @@ import java.util.List;
 @Name(IncrementTransientVariable.NAME)
 @Categories(categories = { "transient"})
 @Description("Wrangler - A interactive tool for data cleansing and transformation.")
-public class IncrementTransientVariable implements Directive {
+public class IncrementTransientVariable implements Directive, Sequential {
   public static final String NAME = "increment-variable";
   private String variable;
   private long incrementBy;
   private String expression;
-  private JexlEngine engine;
   private JexlScript script;
 
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -70,32 +72,21 @@ public class IncrementTransientVariable implements Directive {
     this.variable = ((Identifier) args.value("variable")).value();
     this.expression = ((Expression) args.value("condition")).value();
     this.incrementBy = ((Numeric) args.value("value")).value().longValue();
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(this.expression);
+    script = JexlHelper.compile(this.expression);
   }
 
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
+    if (ctx == null) {
+      ctx = new RowContext(JexlHelper.getVariables(script));
+    }
+    TransientStore store = context == null ? null : context.getTransientStore();
     for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", row);
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
-
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        boolean result = (Boolean) script.execute(ctx);
+        boolean result = (Boolean) script.execute(ctx.reset(row, store));
         if (result) {
           context.getTransientStore().increment(variable, incrementBy);
         }
@@ -126,6 +117,12 @@ public class IncrementTransientVariable implements Directive {
     return rows;
   }
 
+  @Override
+  public boolean requiresSequentialExecution() {
+    // The variable incremented is shared by all the rows through the transient store.
+    return true;
+  }
+
   public void destroy() {
     // no-op
   }
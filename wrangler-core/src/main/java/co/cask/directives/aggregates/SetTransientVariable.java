@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
@@ -27,16 +28,15 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.api.Sequential;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -50,13 +50,15 @@ import java.util.List;
 @Name(SetTransientVariable.NAME)
 @Categories(categories = { "transient"})
 @Description("Sets the value for a transient variable for the record being processed.")
-public class SetTransientVariable implements Directive {
+public class SetTransientVariable implements Directive, Sequential {
   public static final String NAME = "set-variable";
   private String variable;
   private String expression;
-  private JexlEngine engine;
   private JexlScript script;
 
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -69,8 +71,13 @@ public class SetTransientVariable implements Directive {
   public void initialize(Arguments args) throws DirectiveParseException {
     this.variable = ((Identifier) args.value("variable")).value();
     this.expression = ((Expression) args.value("condition")).value();
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(this.expression);
+    script = JexlHelper.compile(this.expression);
+  }
+
+  @Override
+  public boolean requiresSequentialExecution() {
+    // The variable set is shared by all the rows through the transient store.
+    return true;
   }
 
   @Override
@@ -81,25 +88,15 @@ public class SetTransientVariable implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
+    if (ctx == null) {
+      ctx = new RowContext(JexlHelper.getVariables(script));
+    }
+    TransientStore store = context == null ? null : context.getTransientStore();
     for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", row);
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
-
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        Object result = script.execute(ctx);
+        Object result = script.execute(ctx.reset(row, store));
         if (context != null) {
           context.getTransientStore().set(variable, result);
         }
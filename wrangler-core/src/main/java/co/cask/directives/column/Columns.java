@@ -29,6 +29,8 @@ import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.ColumnLayout;
+import co.cask.wrangler.optimizer.ColumnProjection;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,7 +45,7 @@ import java.util.List;
 @Name(Columns.NAME)
 @Categories(categories = { "column"})
 @Description("Sets the name of columns, in the order they are specified.")
-public class Columns implements Directive {
+public class Columns implements Directive, ColumnProjection {
   public static final String NAME = "set-headers";
   // Name of the columns represented in a {@link Row}
   private List<String> columns = new ArrayList<>();
@@ -60,6 +62,18 @@ public class Columns implements Directive {
     columns = ((ColumnNameList) args.value("column")).value();
   }
 
+  @Override
+  public boolean project(ColumnLayout layout) {
+    int idx = 0;
+    for (String name : columns) {
+      if (idx < layout.size()) {
+        layout.setName(idx, name.trim());
+      }
+      idx++;
+    }
+    return true;
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -27,6 +27,9 @@ import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
@@ -42,7 +45,7 @@ import java.util.List;
 @Name(Copy.NAME)
 @Categories(categories = { "column"})
 @Description("Copies values from a source column into a destination column.")
-public class Copy implements Directive {
+public class Copy implements Directive, Mutator {
   private static final Messages MSG = MessagesFactory.getMessages();
   public static final String NAME = "copy";
   private ColumnName source;
@@ -67,6 +70,14 @@ public class Copy implements Directive {
     }
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(source.value(), MutationType.READ);
+    builder.addMutation(destination.value(), MutationType.ADD);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
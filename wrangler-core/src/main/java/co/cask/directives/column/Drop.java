@@ -26,9 +26,15 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.ColumnLayout;
+import co.cask.wrangler.optimizer.ColumnProjection;
+import co.cask.wrangler.optimizer.Infallible;
 
 import java.util.List;
 
@@ -40,7 +46,7 @@ import java.util.List;
 @Name(Drop.NAME)
 @Categories(categories = { "column"})
 @Description("Drop one or more columns.")
-public class Drop implements Directive {
+public class Drop implements Directive, Mutator, ColumnProjection, Infallible {
   public static final String NAME = "drop";
 
   // Columns to be dropped.
@@ -59,6 +65,26 @@ public class Drop implements Directive {
     columns = cols.value();
   }
 
+  @Override
+  public boolean project(ColumnLayout layout) {
+    for (String column : columns) {
+      int idx = layout.find(column.trim());
+      if (idx != -1) {
+        layout.remove(idx);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String column : columns) {
+      builder.addMutation(column.trim(), MutationType.DROP);
+    }
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
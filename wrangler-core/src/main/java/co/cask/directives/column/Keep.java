@@ -30,6 +30,8 @@ import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.ColumnLayout;
+import co.cask.wrangler.optimizer.ColumnProjection;
 
 import java.util.HashSet;
 import java.util.List;
@@ -45,7 +47,7 @@ import java.util.Set;
 @Name("keep")
 @Categories(categories = { "column"})
 @Description("Keeps the specified columns and drops all others.")
-public class Keep implements Directive {
+public class Keep implements Directive, ColumnProjection {
   public static final String NAME = "keep";
   private final Set<String> keep = new HashSet<>();
 
@@ -64,6 +66,19 @@ public class Keep implements Directive {
     }
   }
 
+  @Override
+  public boolean project(ColumnLayout layout) {
+    int idx = 0;
+    while (idx < layout.size()) {
+      if (!keep.contains(layout.getName(idx))) {
+        layout.remove(idx);
+      } else {
+        ++idx;
+      }
+    }
+    return true;
+  }
+
   @Override
   public void destroy() {
     // no-op
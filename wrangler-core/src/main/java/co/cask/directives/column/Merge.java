@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
@@ -42,7 +45,7 @@ import java.util.List;
 @Name(Merge.NAME)
 @Categories(categories = { "column"})
 @Description("Merges values from two columns using a separator into a new column.")
-public class Merge implements Directive {
+public class Merge implements Directive, Mutator {
   public static final String NAME = "merge";
   // Scope column1
   private String col1;
@@ -75,6 +78,15 @@ public class Merge implements Directive {
     delimiter = StringEscapeUtils.unescapeJava(delimiter);
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(col1, MutationType.READ);
+    builder.addMutation(col2, MutationType.READ);
+    builder.addMutation(dest, MutationType.ADD);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
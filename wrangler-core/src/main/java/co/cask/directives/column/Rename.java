@@ -27,9 +27,14 @@ import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.ColumnLayout;
+import co.cask.wrangler.optimizer.ColumnProjection;
 
 import java.util.List;
 
@@ -40,7 +45,7 @@ import java.util.List;
 @Name(Rename.NAME)
 @Categories(categories = { "column"})
 @Description("Renames a column 'source' to 'target'")
-public final class Rename implements Directive {
+public final class Rename implements Directive, Mutator, ColumnProjection {
   public static final String NAME = "rename";
   private ColumnName source;
   private ColumnName target;
@@ -61,6 +66,28 @@ public final class Rename implements Directive {
     }
   }
 
+  @Override
+  public boolean project(ColumnLayout layout) {
+    int idx = layout.find(source.value());
+    int idxnew = layout.find(target.value());
+    if (idx != -1) {
+      if (idxnew == -1) {
+        layout.setName(idx, target.value());
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(source.value(), MutationType.RENAME);
+    builder.addMutation(target.value(), MutationType.RENAME);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -27,6 +27,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.TokenType;
@@ -42,10 +45,11 @@ import java.util.List;
 @Name(SetType.NAME)
 @Categories(categories = {"column"})
 @Description("Converting data type of a column.")
-public final class SetType implements Directive {
+public final class SetType implements Directive, Mutator {
   public static final String NAME = "set-type";
   private String col;
   private String type;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -61,6 +65,13 @@ public final class SetType implements Directive {
     type = ((Identifier)args.value("type")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(col, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -69,7 +80,8 @@ public final class SetType implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(col);
+      int idx = row.find(col, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object == null) {
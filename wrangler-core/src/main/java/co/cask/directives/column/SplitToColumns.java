@@ -49,6 +49,9 @@ public class SplitToColumns implements Directive {
   // Type of mask.
   private String regex;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -73,7 +76,8 @@ public class SplitToColumns implements Directive {
     List<Row> results = new ArrayList<>();
 
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
@@ -26,11 +26,16 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.i18n.Messages;
 import co.cask.wrangler.i18n.MessagesFactory;
+import co.cask.wrangler.optimizer.ColumnLayout;
+import co.cask.wrangler.optimizer.ColumnProjection;
 
 import java.util.List;
 
@@ -41,7 +46,7 @@ import java.util.List;
 @Name(Swap.NAME)
 @Categories(categories = { "column"})
 @Description("Swaps the column names of two columns.")
-public class Swap implements Directive {
+public class Swap implements Directive, Mutator, ColumnProjection {
   public static final String NAME = "swap";
   private static final Messages MSG = MessagesFactory.getMessages();
   private String left;
@@ -61,6 +66,26 @@ public class Swap implements Directive {
     right = ((ColumnName) args.value("right")).value();
   }
 
+  @Override
+  public boolean project(ColumnLayout layout) {
+    int sidx = layout.find(left);
+    int didx = layout.find(right);
+    if (sidx == -1 || didx == -1) {
+      return false;
+    }
+    layout.setName(sidx, right);
+    layout.setName(didx, left);
+    return true;
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(left, MutationType.RENAME);
+    builder.addMutation(right, MutationType.RENAME);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
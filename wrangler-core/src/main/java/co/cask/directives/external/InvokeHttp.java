@@ -27,6 +27,7 @@ import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.Sequential;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.Text;
@@ -64,7 +65,7 @@ import java.util.Map;
 @Name(InvokeHttp.NAME)
 @Categories(categories = { "http"})
 @Description("[EXPERIMENTAL] Invokes an HTTP endpoint, passing columns as a JSON map (potentially slow).")
-public class InvokeHttp implements Directive {
+public class InvokeHttp implements Directive, Sequential {
   public static final String NAME = "invoke-http";
   private String url;
   private List<String> columns;
@@ -122,6 +123,12 @@ public class InvokeHttp implements Directive {
     // no-op
   }
 
+  @Override
+  public boolean requiresSequentialExecution() {
+    // Calls to the endpoint are made in the order of the rows, at the rate of a single thread.
+    return true;
+  }
+
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
@@ -51,6 +51,7 @@ public class SetCharset implements Directive {
   public static final String NAME = "set-charset";
   private String column;
   private String charset;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -77,7 +78,8 @@ public class SetCharset implements Directive {
 
     // Iterate through all the rows.
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         continue;
       }
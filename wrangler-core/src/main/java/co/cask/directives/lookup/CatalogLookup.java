@@ -52,6 +52,9 @@ public class CatalogLookup implements Directive {
   // Column from which the ICD code needs to be read.
   private String column;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -87,7 +90,8 @@ public class CatalogLookup implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object != null && object instanceof String) {
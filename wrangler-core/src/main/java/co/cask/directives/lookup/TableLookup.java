@@ -28,6 +28,7 @@ import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.Sequential;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
@@ -45,13 +46,14 @@ import java.util.Map;
 @Name(TableLookup.NAME)
 @Categories(categories = { "lookup"})
 @Description("Uses the given column as a key to perform a lookup into the specified table.")
-public class TableLookup implements Directive {
+public class TableLookup implements Directive, Sequential {
   public static final String NAME = "table-lookup";
   private String column;
   private String table;
 
   private boolean initialized;
   private co.cask.cdap.etl.api.lookup.TableLookup tableLookup;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -73,6 +75,12 @@ public class TableLookup implements Directive {
     // no-op
   }
 
+  @Override
+  public boolean requiresSequentialExecution() {
+    // The table is provided by the context, which is only usable by the thread executing the pipeline.
+    return true;
+  }
+
   private void ensureInitialized(ExecutorContext context) throws DirectiveExecutionException {
     if (initialized) {
       return;
@@ -96,7 +104,8 @@ public class TableLookup implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     ensureInitialized(context);
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         continue;
       }
@@ -47,6 +47,7 @@ public class Stemming implements Directive {
   public static final String NAME = "stemming";
   private String column;
   private PorterStemmer stemmer;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -70,7 +71,8 @@ public class Stemming implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
       List<String> stemmed = new ArrayList<>();
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object != null && (object instanceof List || object instanceof String[] || object instanceof String)) {
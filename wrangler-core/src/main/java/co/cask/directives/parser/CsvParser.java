@@ -26,6 +26,7 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.Sequential;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.Bool;
 import co.cask.wrangler.api.parser.ColumnName;
@@ -34,9 +35,8 @@ import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.dq.DataType;
 import co.cask.wrangler.dq.TypeInference;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import co.cask.wrangler.optimizer.LineParser;
+import co.cask.wrangler.utils.CsvTokenizer;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import java.io.IOException;
@@ -52,13 +52,19 @@ import java.util.Set;
 @Name("parse-as-csv")
 @Categories(categories = { "parser", "csv"})
 @Description("Parses a column as CSV (comma-separated values).")
-public class CsvParser implements Directive {
+public class CsvParser implements Directive, Sequential, LineParser {
   private ColumnName columnArg;
   private Text delimiterArg;
   private Bool headerArg;
 
-  // CSV format defines the configuration for CSV parser for parsing.
-  private CSVFormat format;
+  // Delimiter separating the fields of a record.
+  private char delimiter;
+
+  // Tokenizer reading the records of the column, reused across the rows.
+  private transient CsvTokenizer tokenizer;
+
+  // Fields of the record being read, reused across the records.
+  private transient List<String> fields;
 
   //
   private boolean hasHeader;
@@ -66,9 +72,15 @@ public class CsvParser implements Directive {
   // Set to true once header is checked.
   private boolean checkedHeader = false;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   // Header names.
   private List<String> headers = new ArrayList<>();
 
+  // Generated column names, used when there is no header.
+  private List<String> names = new ArrayList<>();
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder("parse-as-csv");
@@ -95,11 +107,7 @@ public class CsvParser implements Directive {
       }
     }
 
-    this.format = CSVFormat.DEFAULT.withDelimiter(delimiter);
-    this.format.withIgnoreEmptyLines(true)
-      .withAllowMissingColumnNames(true)
-      .withIgnoreSurroundingSpaces(true)
-      .withRecordSeparator('\n');
+    this.delimiter = delimiter;
 
     this.hasHeader = false;
     if(args.contains("header")) {
@@ -108,6 +116,36 @@ public class CsvParser implements Directive {
     }
   }
 
+  @Override
+  public boolean requiresSequentialExecution() {
+    // The header is read from the first row seen by the directive.
+    return hasHeader;
+  }
+
+  @Override
+  public String getParsedColumn() {
+    return columnArg.value();
+  }
+
+  @Override
+  public boolean requiresOrder() {
+    return hasHeader && !checkedHeader;
+  }
+
+  @Override
+  public LineParser copy() {
+    CsvParser copy = new CsvParser();
+    copy.columnArg = columnArg;
+    copy.delimiterArg = delimiterArg;
+    copy.headerArg = headerArg;
+    copy.delimiter = delimiter;
+    copy.hasHeader = hasHeader;
+    copy.checkedHeader = checkedHeader;
+    copy.headers = new ArrayList<>(headers);
+    copy.names = new ArrayList<>(names);
+    return copy;
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -124,8 +162,15 @@ public class CsvParser implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException {
 
+    if (tokenizer == null) {
+      tokenizer = new CsvTokenizer(delimiter);
+      fields = new ArrayList<>();
+    }
+    // Row holding the header, which is not passed on to the next directive.
+    Row header = null;
     for (Row row : rows) {
-      int idx = row.find(columnArg.value());
+      int idx = row.find(columnArg.value(), slot);
+      slot = idx;
       if (idx == -1) {
         continue;
       }
@@ -133,20 +178,14 @@ public class CsvParser implements Directive {
       if(line == null || line.isEmpty()) {
         continue;
       }
-      CSVParser parser = null;
       try {
-        parser = CSVParser.parse(line, format);
-        List<CSVRecord> csvRecords = parser.getRecords();
-        for (CSVRecord csvRecord : csvRecords) {
-          if(!checkedHeader && hasHeader && isHeader(csvRecord)) {
-            for (int i = 0; i < csvRecord.size(); i++) {
-              headers.add(csvRecord.get(i));
-            }
-            if (rows.size() > 0) {
-              return new ArrayList<>();
-            }
+        tokenizer.reset(line);
+        while (tokenizer.next(fields)) {
+          if(!checkedHeader && hasHeader && isHeader(fields)) {
+            headers.addAll(fields);
+            header = row;
           } else {
-            toRow(csvRecord, row);
+            toRow(fields, row);
           }
         }
       } catch (IOException e) {
@@ -155,27 +194,42 @@ public class CsvParser implements Directive {
         );
       }
     }
+
+    // Rows could be passed in batches, so only the header row is dropped.
+    if (header != null) {
+      List<Row> results = new ArrayList<>(rows.size());
+      for (Row row : rows) {
+        if (row != header) {
+          results.add(row);
+        }
+      }
+      return results;
+    }
     return rows;
   }
 
   /**
-   * Converts a {@link CSVRecord} to {@link Row}.
+   * Adds the fields of a record to a {@link Row}.
    *
-   * @param record
-   * @return
+   * @param record fields of the record.
+   * @param row to which the fields are added.
    */
-  private void toRow(CSVRecord record, Row row) {
+  private void toRow(List<String> record, Row row) {
     int size = headers.size();
     for ( int i = 0; i < record.size(); i++) {
       if (size > 0) {
         row.add(headers.get(i), record.get(i));
       } else {
-        row.add(columnArg.value() + "_" + (i + 1), record.get(i));
+        // Names are generated once, rather than for every row parsed.
+        if (i == names.size()) {
+          names.add(columnArg.value() + "_" + (i + 1));
+        }
+        row.add(names.get(i), record.get(i));
       }
     }
   }
 
-  private boolean isHeader(CSVRecord record) {
+  private boolean isHeader(List<String> record) {
     checkedHeader = true;
     Set<String> columns = new HashSet<>();
     for (int i = 0; i < record.size(); i++) {
@@ -51,6 +51,7 @@ public final class FixedLengthParser implements Directive {
   private String col;
   private String padding;
   private int recordLength;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -91,7 +92,8 @@ public final class FixedLengthParser implements Directive {
     throws DirectiveExecutionException, ErrorRowException {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
-      int idx = row.find(col);
+      int idx = row.find(col, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
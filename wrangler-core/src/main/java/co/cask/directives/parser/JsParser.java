@@ -26,37 +26,56 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.StreamingDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.dq.TypeInference;
+import co.cask.wrangler.optimizer.ColumnPruner;
+import co.cask.wrangler.utils.JsonFlattener;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.UnmodifiableIterator;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A JSON Parser Stage for parsing the provided {@link Row} based on the configuration.
+ *
+ * <p>Objects are flattened while they are read, see {@link JsonFlattener}, skipping the members
+ * whose columns are not used by the rest of the recipe when those are known.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("parse-as-json")
 @Categories(categories = { "parser", "json"})
 @Description("Parses a column as JSON.")
-public class JsParser implements Directive {
+public class JsParser implements Directive, StreamingDirective, ColumnPruner {
   public static final String NAME = "parse-as-json";
   // Column within the input row that needs to be parsed as Json
   private String column;
@@ -64,6 +83,15 @@ public class JsParser implements Directive {
   // Max depth to which the JSON needs to be parsed.
   private int depth;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
+  // Lower cased names of the columns used after the directive, null if not known.
+  private Set<String> used;
+
+  // Flattener of the objects parsed, created for the first object.
+  private transient JsonFlattener flattener;
+
   // JSON parser.
   private static final JsonParser parser = new JsonParser();
 
@@ -85,6 +113,14 @@ public class JsParser implements Directive {
     }
   }
 
+  @Override
+  public void pruneColumns(Set<String> used) {
+    this.used = used;
+    if (flattener != null) {
+      flattener.prune(used);
+    }
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -95,55 +131,120 @@ public class JsParser implements Directive {
     List<Row> results = new ArrayList<>();
     // Iterate through all the rows.
     for (Row row : rows) {
-      int idx = row.find(column);
+      Iterator<Row> it = stream(row, context);
+      while (it.hasNext()) {
+        results.add(it.next());
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Iterator<Row> stream(final Row row, ExecutorContext context) throws DirectiveExecutionException {
+    int idx = row.find(column, slot);
+    slot = idx;
 
-      // If the input column exists in the row, proceed further.
-      if (idx != -1) {
-        Object value = row.getValue(idx);
+    // If the input column exists in the row, proceed further.
+    if (idx != -1) {
+      Object value = row.getValue(idx);
 
-        if (value == null) {
-          continue;
-        }
+      if (value == null) {
+        return Collections.emptyIterator();
+      }
 
-        try {
-          JsonElement element = null;
-          if(value instanceof String) {
-            String document = (String) value;
-            element = parser.parse(document.trim());
-          } else if (value instanceof JsonObject || value instanceof JsonArray) {
-            element = (JsonElement) value;
-          } else {
-            throw new DirectiveExecutionException(
-              String.format("%s : Invalid type '%s' of column '%s'. " +
-                              "Should be of type string. Use paths to further parse data.",
-                            toString(), element != null ? element.getClass().getName() : "null", column)
-            );
+      try {
+        JsonElement element = null;
+        if(value instanceof String) {
+          String document = ((String) value).trim();
+          if (document.startsWith("{")) {
+            row.remove(idx);
+            if (flatten(document, row)) {
+              return Iterators.singletonIterator(row);
+            }
+            // Columns added were removed, the object is flattened from its tree below.
+            row.add(column, value);
+            idx = row.length() - 1;
           }
+          element = parser.parse(document);
+        } else if (value instanceof JsonObject || value instanceof JsonArray) {
+          element = (JsonElement) value;
+        } else {
+          throw new DirectiveExecutionException(
+            String.format("%s : Invalid type '%s' of column '%s'. " +
+                            "Should be of type string. Use paths to further parse data.",
+                          toString(), element != null ? element.getClass().getName() : "null", column)
+          );
+        }
+
+        row.remove(idx);
+
+        if (element != null) {
+          if (element instanceof JsonObject) {
+            flattenJson(element.getAsJsonObject(), column, 1, depth, row);
+            return Iterators.singletonIterator(row);
+          } else if (element instanceof JsonArray) {
+            final JsonArray array = element.getAsJsonArray();
+            // The column is added to the row before it's copied for each of the elements,
+            // so that the rows generated share the columns of the row.
+            row.add(column, null);
+            final int pos = row.length() - 1;
+            return new UnmodifiableIterator<Row>() {
+              private int i = 0;
 
-          row.remove(idx);
+              @Override
+              public boolean hasNext() {
+                return i < array.size();
+              }
 
-          if (element != null) {
-            if (element instanceof JsonObject) {
-              flattenJson(element.getAsJsonObject(), column, 1, depth, row);
-              results.add(row);
-            } else if (element instanceof JsonArray) {
-              JsonArray array = element.getAsJsonArray();
-              for(int i = 0; i < array.size(); ++i) {
-                JsonElement object = array.get(i);
+              @Override
+              public Row next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
                 Row newRow = new Row(row);
-                newRow.add(column, getValue(object));
-                results.add(newRow);
+                newRow.setValue(pos, getValue(array.get(i++)));
+                return newRow;
               }
-            } else if (element instanceof JsonPrimitive) {
-              row.add(column, getValue(element.getAsJsonPrimitive()));
-            }
+            };
+          } else if (element instanceof JsonPrimitive) {
+            row.add(column, getValue(element.getAsJsonPrimitive()));
           }
-        } catch (JSONException e) {
-          throw new DirectiveExecutionException(toString() + " : " + e.getMessage());
         }
+      } catch (JSONException e) {
+        throw new DirectiveExecutionException(toString() + " : " + e.getMessage());
       }
     }
-    return results;
+    return Collections.emptyIterator();
+  }
+
+  /**
+   * Flattens a JSON object while reading it, as {@link #flattenJson} flattens it from its tree.
+   *
+   * @param document holding the object.
+   * @param row to which the columns are added.
+   * @return true if the object was flattened, false if it has to be flattened from its tree.
+   * @throws JsonSyntaxException if the document is malformed, as thrown by {@link JsonParser}.
+   */
+  private boolean flatten(String document, Row row) {
+    if (flattener == null) {
+      flattener = new JsonFlattener(column, depth);
+      flattener.prune(used);
+    }
+    JsonReader reader = new JsonReader(new StringReader(document));
+    reader.setLenient(true);
+    try {
+      if (!flattener.flatten(reader, row)) {
+        return false;
+      }
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+      return true;
+    } catch (MalformedJsonException | EOFException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
   }
 
   /**
@@ -168,7 +269,7 @@ public class JsParser implements Directive {
       JsonElement element = next.getValue();
       if (element instanceof JsonObject) {
         flattenJson(element.getAsJsonObject(),
-                    String.format("%s_%s", field, key), depth++, maxDepth, row);
+                    String.format("%s_%s", field, key), depth + 1, maxDepth, row);
       } else {
         row.add(String.format("%s_%s", field, key), getValue(element));
       }
@@ -30,10 +30,13 @@ import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.PathExtractor;
+import co.cask.wrangler.utils.JsonPaths;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.spi.json.GsonJsonProvider;
@@ -41,20 +44,26 @@ import com.jayway.jsonpath.spi.mapper.GsonMappingProvider;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * A Json Path Extractor Stage for parsing the {@link Row} provided based on configuration.
+ *
+ * <p>The path is compiled once, and consecutive json-path directives reading the same column
+ * are fused by the {@link co.cask.wrangler.optimizer.RecipeOptimizer}, so that the document
+ * of a row is parsed once for all of them.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("json-path")
 @Categories(categories = { "parser", "json"})
 @Description("Parses JSON elements using a DSL (a JSON path expression).")
-public class JsPath implements Directive {
+public class JsPath implements Directive, PathExtractor {
   public static final String NAME = "json-path";
   private String src;
   private String dest;
   private String path;
   private ParseContext parser;
+  private transient JsonPath compiled;
 
   public static final Configuration GSON_CONFIGURATION = Configuration
     .builder()
@@ -94,29 +103,56 @@ public class JsPath implements Directive {
         continue;
       }
 
-      if (!(value instanceof String ||
-        value instanceof JsonObject ||
-        value instanceof JsonArray)) {
+      Object document = parse(value);
+      if (document == null) {
         throw new DirectiveExecutionException(
           String.format("%s : Invalid value type '%s' of column '%s'. Should be of type JsonElement, " +
                           "String.", toString(), value.getClass().getName(), src)
         );
       }
 
-      JsonElement element = parser.parse(value).read(path);
-      Object val = JsParser.getValue(element);
-
-      // If destination is already present add it, else set the value.
-      int pos = row.find(dest);
-      if (pos == -1) {
-        row.add(dest, val);
-      } else {
-        row.setValue(pos, val);
-      }
+      extract(document, row);
       results.add(row);
     }
 
     return results;
   }
-}
 
+  @Override
+  public String getSourceColumn() {
+    return src;
+  }
+
+  @Override
+  public String getDestinationColumn() {
+    return dest;
+  }
+
+  @Nullable
+  @Override
+  public Object parse(@Nullable Object value) {
+    if (!(value instanceof String ||
+      value instanceof JsonObject ||
+      value instanceof JsonArray)) {
+      return null;
+    }
+    return parser.parse(value);
+  }
+
+  @Override
+  public void extract(Object document, Row row) {
+    if (compiled == null) {
+      compiled = JsonPaths.compile(path);
+    }
+    JsonElement element = ((DocumentContext) document).read(compiled);
+    Object val = JsParser.getValue(element);
+
+    // If destination is already present add it, else set the value.
+    int pos = row.find(dest);
+    if (pos == -1) {
+      row.add(dest, val);
+    } else {
+      row.setValue(pos, val);
+    }
+  }
+}
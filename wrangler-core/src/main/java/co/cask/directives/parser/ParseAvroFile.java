@@ -52,6 +52,7 @@ public class ParseAvroFile implements Directive {
   public static final String NAME = "parse-as-avro-file";
   private String column;
   private Gson gson;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -75,7 +76,8 @@ public class ParseAvroFile implements Directive {
   public List<Row> execute(List<Row> rows, final ExecutorContext context) throws DirectiveExecutionException {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof byte[]) {
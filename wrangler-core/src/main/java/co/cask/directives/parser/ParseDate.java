@@ -50,6 +50,7 @@ public class ParseDate implements Directive {
   public static final String NAME = "parse-as-date";
   private String column;
   private String timezone;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -78,7 +79,8 @@ public class ParseDate implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
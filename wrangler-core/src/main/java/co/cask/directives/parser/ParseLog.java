@@ -48,6 +48,7 @@ public class ParseLog implements Directive {
   private String format;
   private LogLine line;
   private Parser<Object> parser;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -80,7 +81,8 @@ public class ParseLog implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     // Iterate through all the rows.
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
 
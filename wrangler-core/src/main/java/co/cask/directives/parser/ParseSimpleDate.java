@@ -47,6 +47,7 @@ public class ParseSimpleDate implements Directive {
   public static final String NAME = "parse-as-simple-date";
   private String column;
   private SimpleDateFormat format;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -71,7 +72,8 @@ public class ParseSimpleDate implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         // If the data in the cell is null or is already of date format, then
@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
@@ -31,11 +32,8 @@ import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -49,9 +47,11 @@ import java.util.List;
 public class Fail implements Directive {
   public static final String NAME = "fail";
   private String condition;
-  private JexlEngine engine;
   private JexlScript script;
 
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -68,8 +68,7 @@ public class Fail implements Directive {
       );
     }
     condition = expression.value();
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
   }
 
   @Override
@@ -80,18 +79,14 @@ public class Fail implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException {
+    if (ctx == null) {
+      ctx = new RowContext(JexlHelper.getVariables(script));
+    }
     for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", row);
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        boolean result = (Boolean) script.execute(ctx);
+        boolean result = (Boolean) script.execute(ctx.reset(row));
         if (result) {
           throw new DirectiveExecutionException(
             String.format("Condition '%s' evaluated to true. Terminating processing.", condition)
@@ -26,15 +26,19 @@ import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.StreamingDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import com.google.gson.JsonArray;
+import com.google.common.collect.UnmodifiableIterator;
 import com.google.gson.JsonElement;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * A directive that Flattens a record
@@ -43,7 +47,7 @@ import java.util.List;
 @Name(Flatten.NAME)
 @Categories(categories = { "row"})
 @Description("Separates array elements of one or more columns into indvidual records, copying the other columns.")
-public class Flatten implements Directive {
+public class Flatten implements Directive, StreamingDirective {
   public static final String NAME = "flatten";
   // Column within the input row that needs to be parsed as Json
   private String[] columns;
@@ -76,75 +80,116 @@ public class Flatten implements Directive {
 
     // Iterate through the rows.
     for (Row row : rows) {
-      count = 0;
-      // Only once find the location of the columns to be flatten within
-      // the row. It's assumed that all rows to passed to this
-      // instance are same.
-      for (String column : columns) {
-        locations[count] = row.find(column);
-        ++count;
+      Iterator<Row> it = stream(row, context);
+      while (it.hasNext()) {
+        results.add(it.next());
       }
-      // For each row we find the maximum number of
-      // values in each of the columns specified to be
-      // flattened.
-      int max = Integer.MIN_VALUE;
-      for (int i = 0; i < count; ++i) {
-        if (locations[i] != -1) {
-          Object value = row.getValue(locations[i]);
-          int m = -1;
-          if (value instanceof JsonArray) {
-            m = ((JsonArray) value).size();
-          } else if (value instanceof List){
-            m = ((List) value).size();
-          } else {
-            m = 1;
-          }
-          if (m > max) {
-            max = m;
-          }
+    }
+    return results;
+  }
+
+  @Override
+  public Iterator<Row> stream(final Row row, ExecutorContext context) throws DirectiveExecutionException {
+    count = 0;
+    // Only once find the location of the columns to be flatten within
+    // the row. It's assumed that all rows to passed to this
+    // instance are same.
+    for (String column : columns) {
+      locations[count] = row.find(column);
+      ++count;
+    }
+    // For each row we find the maximum number of
+    // values in each of the columns specified to be
+    // flattened.
+    int max = Integer.MIN_VALUE;
+    for (int i = 0; i < count; ++i) {
+      if (locations[i] != -1) {
+        Object value = row.getValue(locations[i]);
+        int m = -1;
+        if (value instanceof JsonArray) {
+          m = ((JsonArray) value).size();
+        } else if (value instanceof List){
+          m = ((List) value).size();
+        } else {
+          m = 1;
+        }
+        if (m > max) {
+          max = m;
         }
       }
+    }
 
-      // We iterate through the arrays and populate all the columns.
-      for(int k = 0; k < max; ++k) {
-        Row r = new Row(row);
-        for (int i = 0; i < count; ++i) {
-          if (locations[i] != -1) {
-            Object value = row.getValue(locations[i]);
-            if (value == null) {
-              r.add(columns[i], null);
-            } else {
-              Object v = null;
-              if (value instanceof JsonArray) {
-                JsonArray array = (JsonArray) value;
-                if (k < array.size()) {
-                  v = array.get(k);
-                }
-              } else if (value instanceof List) {
-                List<Object> array = (List) value;
-                if (k < array.size()) {
-                  v = array.get(k);
-                }
-              } else {
-                v = value;
-              }
-              if (v == null) {
-                r.addOrSet(columns[i], null);
-              } else {
-                if (v instanceof JsonElement) {
-                  r.setValue(locations[i], JsParser.getValue((JsonElement)v));
-                } else {
-                  r.setValue(locations[i], v);
-                }
-              }
+    // Columns that are missing, or are null, are added to every row generated. So, they are
+    // added once to the row being flattened, letting the rows copied from it share its columns.
+    for (int i = 0; i < count; ++i) {
+      if (locations[i] == -1) {
+        row.addOrSet(columns[i], null);
+      } else if (row.getValue(locations[i]) == null) {
+        row.add(columns[i], null);
+      }
+    }
+
+    // The rows are generated as they are pulled, so the locations are held by the iterator.
+    final int[] positions = locations.clone();
+    final int size = Math.max(max, 0);
+    return new UnmodifiableIterator<Row>() {
+      private int k = 0;
+
+      @Override
+      public boolean hasNext() {
+        return k < size;
+      }
+
+      @Override
+      public Row next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return flatten(row, positions, k++);
+      }
+    };
+  }
+
+  /**
+   * Generates the row holding the k-th element of each of the columns being flattened.
+   *
+   * @param row being flattened.
+   * @param positions of the columns being flattened within the row.
+   * @param k index of the elements to be set in the row generated.
+   * @return row generated.
+   */
+  private Row flatten(Row row, int[] positions, int k) {
+    Row r = new Row(row);
+    for (int i = 0; i < positions.length; ++i) {
+      if (positions[i] != -1) {
+        Object value = row.getValue(positions[i]);
+        if (value != null) {
+          Object v = null;
+          if (value instanceof JsonArray) {
+            JsonArray array = (JsonArray) value;
+            if (k < array.size()) {
+              v = array.get(k);
+            }
+          } else if (value instanceof List) {
+            List<Object> array = (List) value;
+            if (k < array.size()) {
+              v = array.get(k);
             }
           } else {
+            v = value;
+          }
+          if (v == null) {
             r.addOrSet(columns[i], null);
+          } else {
+            if (v instanceof JsonElement) {
+              r.setValue(positions[i], JsParser.getValue((JsonElement)v));
+            } else {
+              r.setValue(positions[i], v);
+            }
           }
         }
-        results.add(r);
       }
     }
-    return results;
+    return r;
   }
 }
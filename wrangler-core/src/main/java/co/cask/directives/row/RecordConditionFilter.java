@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
@@ -27,19 +28,23 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
 import co.cask.wrangler.api.parser.Bool;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.expression.BatchEvaluator;
+import co.cask.wrangler.expression.ScriptEvaluator;
+import co.cask.wrangler.optimizer.RowFilter;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A Wrangle step for filtering rows based on the condition.
@@ -54,11 +59,19 @@ import java.util.List;
 @Name(RecordConditionFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters rows based on condition type specified.")
-public class RecordConditionFilter implements Directive {
+public class RecordConditionFilter implements Directive, RowFilter {
   public static final String NAME = "filter-row";
   private String condition;
-  private JexlEngine engine;
   private JexlScript script;
+
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
+  // Evaluator of the script, possibly through its compiled form.
+  private transient ScriptEvaluator evaluator;
+
+  // Evaluator of the script over whole batches of rows, null if the script can't be vectorized.
+  private transient BatchEvaluator batch;
   private boolean isTrue;
 
   @Override
@@ -76,8 +89,20 @@ public class RecordConditionFilter implements Directive {
       isTrue = ((Bool) args.value("type")).value();
     }
     condition = ((Expression) args.value("condition")).value();
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    Set<String> variables = JexlHelper.getVariables(script);
+    if (variables == null) {
+      return null;
+    }
+    for (String variable : variables) {
+      builder.addMutation(variable, MutationType.READ);
+    }
+    return builder.build();
   }
 
   @Override
@@ -88,23 +113,22 @@ public class RecordConditionFilter implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     List<Row> results = new ArrayList<>();
-    for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext();
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
-
+    if (ctx == null) {
+      ctx = new RowContext(JexlHelper.getVariables(script));
+      evaluator = ScriptEvaluator.of(condition, script, context);
+      batch = BatchEvaluator.of(evaluator);
+    }
+    TransientStore store = context == null ? null : context.getTransientStore();
+    Object[] values = null;
+    for (int i = 0; i < rows.size(); ++i) {
+      Row row = rows.get(i);
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        boolean result = (Boolean) script.execute(ctx);
+        if (i == 0 && batch != null && rows.size() >= BatchEvaluator.MIN_ROWS) {
+          values = batch.evaluate(rows, ctx, store);
+        }
+        boolean result = (Boolean) (values != null ? values[i] : evaluator.evaluate(ctx.reset(row, store)));
         if (!isTrue) {
           result = !result;
         }
@@ -26,9 +26,12 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.RowFilter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,7 +43,7 @@ import java.util.List;
 @Name(RecordMissingOrNullFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters row that have empty or null columns.")
-public class RecordMissingOrNullFilter implements Directive {
+public class RecordMissingOrNullFilter implements Directive, RowFilter {
   public static final String NAME = "filter-empty-or-null";
   private String[] columns;
 
@@ -58,6 +61,15 @@ public class RecordMissingOrNullFilter implements Directive {
     columns = cols.toArray(columns);
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String column : columns) {
+      builder.addMutation(column.trim(), MutationType.READ);
+    }
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -26,11 +26,14 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.RowFilter;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
@@ -44,13 +47,14 @@ import java.util.regex.Pattern;
 @Name(RecordRegexFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters rows if the regex is matched or not matched.")
-public class RecordRegexFilter implements Directive {
+public class RecordRegexFilter implements Directive, RowFilter {
   public static final String NAME = "filter-by-regex";
   private String regex;
   private String column;
   private String matchType;
   private Pattern pattern;
   private boolean matched = false;
+  private int slot = -1;
 
   // filter-by-regex if-matched :column 'expression'
   // filter-by-regex if-not-matched :column 'expression'
@@ -84,6 +88,13 @@ public class RecordRegexFilter implements Directive {
     }
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.READ);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -96,7 +107,8 @@ public class RecordRegexFilter implements Directive {
       return rows;
     }
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof JSONObject) {
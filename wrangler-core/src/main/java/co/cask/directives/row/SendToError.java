@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
@@ -27,18 +28,21 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.expression.ScriptEvaluator;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A directive for erroring the record if
@@ -53,12 +57,17 @@ import java.util.List;
 @Name(SendToError.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Send records that match condition to the error collector.")
-public class SendToError implements Directive {
+public class SendToError implements Directive, Mutator {
   public static final String NAME = "send-to-error";
   private String condition;
-  private JexlEngine engine;
   private JexlScript script;
 
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
+  // Evaluator of the script, possibly through its compiled form.
+  private transient ScriptEvaluator evaluator;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -70,8 +79,20 @@ public class SendToError implements Directive {
   public void initialize(Arguments args) throws DirectiveParseException {
     condition = ((Expression) args.value("condition")).value();
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    Set<String> variables = JexlHelper.getVariables(script);
+    if (variables == null) {
+      return null;
+    }
+    for (String variable : variables) {
+      builder.addMutation(variable, MutationType.READ);
+    }
+    return builder.build();
   }
 
   @Override
@@ -83,24 +104,16 @@ public class SendToError implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
     List<Row> results = new ArrayList<>();
+    if (ctx == null) {
+      ctx = new RowContext(JexlHelper.getVariables(script));
+      evaluator = ScriptEvaluator.of(condition, script, context);
+    }
+    TransientStore store = context == null ? null : context.getTransientStore();
     for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", row);
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
-
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        boolean result = (Boolean) script.execute(ctx);
+        boolean result = (Boolean) evaluator.evaluate(ctx.reset(row, store));
         if (result) {
           throw new ErrorRowException(condition, 1);
         }
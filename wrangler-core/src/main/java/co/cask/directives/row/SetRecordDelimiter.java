@@ -49,6 +49,7 @@ public class SetRecordDelimiter implements Directive {
   private String column;
   private String delimiter;
   private int limit;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -81,7 +82,8 @@ public class SetRecordDelimiter implements Directive {
     throws DirectiveExecutionException, ErrorRowException {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         continue;
       }
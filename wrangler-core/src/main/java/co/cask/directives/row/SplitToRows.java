@@ -25,14 +25,22 @@ import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.StreamingDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.LineSplitter;
+import com.google.common.collect.UnmodifiableIterator;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A directive for splitting the string into multiple {@link Row}s.
@@ -41,7 +49,7 @@ import java.util.List;
 @Name(SplitToRows.NAME)
 @Categories(categories = { "row"})
 @Description("Splits a column into multiple rows, copies the rest of the columns.")
-public class SplitToRows implements Directive {
+public class SplitToRows implements Directive, StreamingDirective, LineSplitter {
   public static final String NAME = "split-to-rows";
   // Column on which to apply mask.
   private String column;
@@ -49,6 +57,12 @@ public class SplitToRows implements Directive {
   // Regex to split on.
   private String regex;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
+  // Compiled regex, created when the first row is split.
+  private transient Pattern pattern;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -63,6 +77,12 @@ public class SplitToRows implements Directive {
     regex = ((Text) args.value("regex")).value();
   }
 
+  @Override
+  public String getSplitColumn() {
+    // Both the line break and its escaped form match each line break, and nothing else.
+    return "\n".equals(regex) || "\\n".equals(regex) ? column : null;
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -73,26 +93,135 @@ public class SplitToRows implements Directive {
     List<Row> results = new ArrayList<>();
 
     for (Row row : rows) {
-      int idx = row.find(column);
-      if (idx != -1) {
-        Object object = row.getValue(idx);
-        if (object != null && object instanceof String) {
-          String[] lines = ((String) object).split(regex);
-          for (String line : lines) {
-            Row r = new Row(row);
-            r.setValue(idx, line);
-            results.add(r);
-          }
-        } else {
-          throw new DirectiveExecutionException(
-            String.format("%s : Invalid type '%s' of column '%s'. Should be of type String.", toString(),
-                          object != null ? object.getClass().getName() : "null", column)
-          );
+      Iterator<Row> it = stream(row, context);
+      while (it.hasNext()) {
+        results.add(it.next());
+      }
+    }
+    return results;
+  }
 
+  @Override
+  public Iterator<Row> stream(final Row row, ExecutorContext context) throws DirectiveExecutionException {
+    final int idx = row.find(column, slot);
+    slot = idx;
+    if (idx == -1) {
+      return Collections.emptyIterator();
+    }
+
+    Object object = row.getValue(idx);
+    if (object != null && object instanceof String) {
+      if (pattern == null) {
+        pattern = Pattern.compile(regex);
+      }
+      final Pieces lines = new Pieces((String) object, pattern);
+      return new UnmodifiableIterator<Row>() {
+        @Override
+        public boolean hasNext() {
+          return lines.hasNext();
         }
+
+        @Override
+        public Row next() {
+          Row r = new Row(row);
+          r.setValue(idx, lines.next());
+          return r;
+        }
+      };
+    } else {
+      throw new DirectiveExecutionException(
+        String.format("%s : Invalid type '%s' of column '%s'. Should be of type String.", toString(),
+                      object != null ? object.getClass().getName() : "null", column)
+      );
+    }
+  }
+
+  /**
+   * Pieces of a string split around the matches of a pattern, each piece being found as it's
+   * iterated over. The pieces are the ones returned by {@link String#split(String)}: a zero-width
+   * match at the beginning of the string doesn't produce a leading empty piece, and the trailing
+   * empty pieces are dropped, unless the pattern doesn't match at all.
+   */
+  private static final class Pieces extends UnmodifiableIterator<String> {
+    private final String value;
+    private final Matcher matcher;
+
+    // Start of the piece following the last match.
+    private int start;
+
+    // Whether the pattern matched the string, set once a match is found.
+    private boolean matched;
+
+    // Whether the piece following the last match has been read.
+    private boolean done;
+
+    // Number of empty pieces read ahead, which are only returned if a piece that isn't empty follows.
+    private int empties;
+
+    // Piece that isn't empty read ahead, following the empty pieces read ahead, null if none.
+    private String next;
+
+    private Pieces(String value, Pattern pattern) {
+      this.value = value;
+      this.matcher = pattern.matcher(value);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        readAhead();
       }
+      return next != null;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (empties > 0) {
+        empties--;
+        return "";
+      }
+      String piece = next;
+      next = null;
+      return piece;
+    }
+
+    /**
+     * Reads the pieces up to the next one that isn't empty, counting the empty ones before it.
+     */
+    private void readAhead() {
+      String piece;
+      while ((piece = read()) != null) {
+        if (!piece.isEmpty() || !matched) {
+          next = piece;
+          return;
+        }
+        empties++;
+      }
+      // Trailing empty pieces are dropped.
+      empties = 0;
+    }
+
+    /**
+     * @return next piece of the string, null once all have been read.
+     */
+    private String read() {
+      if (done) {
+        return null;
+      }
+      while (matcher.find()) {
+        if (start == 0 && matcher.start() == 0 && matcher.end() == 0) {
+          continue;
+        }
+        String piece = value.substring(start, matcher.start());
+        start = matcher.end();
+        matched = true;
+        return piece;
+      }
+      done = true;
+      return value.substring(start);
     }
-    return results;
   }
 }
-
@@ -46,6 +46,7 @@ public class CharacterCut implements Directive {
   private String source;
   private String destination;
   private String range;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -71,7 +72,8 @@ public class CharacterCut implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(source);
+      int idx = row.find(source, slot);
+      slot = idx;
       if (idx != -1) {
         Object value = row.getValue(idx);
         if (value instanceof String) {
@@ -20,26 +20,29 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Arguments;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.expression.BatchEvaluator;
+import co.cask.wrangler.expression.ScriptEvaluator;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * A directive for apply an expression to store the result in a column.
@@ -57,7 +60,7 @@ import java.util.Map;
 @Name(ColumnExpression.NAME)
 @Categories(categories = { "transform"})
 @Description("Sets a column by evaluating a JEXL expression.")
-public class ColumnExpression implements Directive {
+public class ColumnExpression implements Directive, Mutator {
   public static final String NAME = "set-column";
   // Column to which the result of experience is applied to.
   private String column;
@@ -65,14 +68,20 @@ public class ColumnExpression implements Directive {
   // The actual expression
   private String expression;
 
-  // Handler to Jexl Engine.
-  private JexlEngine engine;
-
   // Parsed / Compiled expression.
   private JexlScript script;
 
-  // Properties associated with pipeline
-  private final Map<String, Object> properties = new HashMap<>();
+  // Context the script is evaluated in, reused across the rows.
+  private transient RowContext ctx;
+
+  // Evaluator of the script, possibly through its compiled form.
+  private transient ScriptEvaluator evaluator;
+
+  // Evaluator of the script over whole batches of rows, null if the script can't be vectorized.
+  private transient BatchEvaluator batch;
+
+  // Position of the column in the last row processed.
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -87,8 +96,22 @@ public class ColumnExpression implements Directive {
     this.column = ((ColumnName) args.value("column")).value();
     this.expression = ((Expression) args.value("expression")).value();
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(expression);
+    script = JexlHelper.compile(expression);
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.ADD);
+    Set<String> variables = JexlHelper.getVariables(script);
+    // An expression using 'this' can read any of the columns of the row.
+    if (variables == null) {
+      return null;
+    }
+    for (String variable : variables) {
+      builder.addMutation(variable, MutationType.READ);
+    }
+    return builder.build();
   }
 
   @Override
@@ -98,30 +121,25 @@ public class ColumnExpression implements Directive {
 
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
-    // This is done only the first time.
-    if (properties.size() == 0 && context != null) {
-      properties.putAll(context.getProperties());
+    if (ctx == null) {
+      // Properties of the pipeline are available to the expression, but never modified by it.
+      ctx = new RowContext(JexlHelper.getVariables(script), context == null ? null : context.getProperties());
+      evaluator = ScriptEvaluator.of(expression, script, context);
+      batch = BatchEvaluator.of(evaluator);
     }
-
-    for (Row row : rows) {
-      // Move the fields from the row into the context.
-      JexlContext ctx = new MapContext(properties);
-      ctx.set("this", row);
-      for (int i = 0; i < row.length(); ++i) {
-        ctx.set(row.getColumn(i), row.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
-
+    TransientStore store = context == null ? null : context.getTransientStore();
+    Object[] results = null;
+    for (int i = 0; i < rows.size(); ++i) {
+      Row row = rows.get(i);
       // Execution of the script / expression based on the row data
       // mapped into context.
       try {
-        Object result = script.execute(ctx);
-        int idx = row.find(this.column);
+        if (i == 0 && batch != null && rows.size() >= BatchEvaluator.MIN_ROWS) {
+          results = batch.evaluate(rows, ctx, store);
+        }
+        Object result = results != null ? results[i] : evaluator.evaluate(ctx.reset(row, store));
+        int idx = row.find(this.column, slot);
+        slot = idx;
         if (idx == -1) {
           row.add(this.column, result);
         } else {
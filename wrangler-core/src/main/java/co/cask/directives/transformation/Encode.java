@@ -52,6 +52,7 @@ public class Encode implements Directive {
   private final Hex hexEncode = new Hex();
   private Method method;
   private String column;
+  private int slot = -1;
 
   /**
    * Defines encoding types supported.
@@ -102,7 +103,8 @@ public class Encode implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         continue;
       }
@@ -47,6 +47,7 @@ public class ExtractRegexGroups implements Directive {
   private String column;
   private String regex;
   private Pattern pattern;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -72,7 +73,8 @@ public class ExtractRegexGroups implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object value = row.getValue(idx);
         if (value != null && value instanceof String) {
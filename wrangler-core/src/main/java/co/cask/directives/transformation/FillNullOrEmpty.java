@@ -26,10 +26,14 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.Infallible;
 import org.json.JSONObject;
 
 import java.util.List;
@@ -41,10 +45,11 @@ import java.util.List;
 @Name(FillNullOrEmpty.NAME)
 @Categories(categories = { "transform"})
 @Description("Fills a value of a column with a fixed value if it is either null or empty.")
-public class FillNullOrEmpty implements Directive {
+public class FillNullOrEmpty implements Directive, Mutator, Infallible {
   public static final String NAME = "fill-null-or-empty";
   private String column;
   private String value;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -65,6 +70,13 @@ public class FillNullOrEmpty implements Directive {
     }
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -74,7 +86,8 @@ public class FillNullOrEmpty implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         row.add(column, value);
         continue;
@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
@@ -43,7 +46,7 @@ import java.util.List;
 @Name(FindAndReplace.NAME)
 @Categories(categories = { "transform"})
 @Description("Finds and replaces text in column values using a sed-format expression.")
-public class FindAndReplace implements Directive {
+public class FindAndReplace implements Directive, Mutator {
   public static final String NAME = "find-and-replace";
   private String pattern;
   private List<String> columns;
@@ -63,6 +66,15 @@ public class FindAndReplace implements Directive {
     this.pattern = ((Text) args.value("pattern")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String column : columns) {
+      builder.addMutation(column, MutationType.MODIFY);
+    }
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -45,6 +45,7 @@ public class GenerateUUID implements Directive {
   public static final String NAME = "generate-uuid";
   private String column;
   private Random random;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -67,7 +68,8 @@ public class GenerateUUID implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       UUID uuid = new UUID(random.nextLong(), random.nextLong());
       if (idx != -1) {
         row.setValue(idx, uuid.toString());
@@ -53,6 +53,9 @@ public class IndexSplit implements Directive {
   // Destination column
   private String dest;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -82,7 +85,8 @@ public class IndexSplit implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
-      int idx = row.find(col);
+      int idx = row.find(col, slot);
+      slot = idx;
 
       if (idx != -1) {
         String val = (String) row.getValue(idx);
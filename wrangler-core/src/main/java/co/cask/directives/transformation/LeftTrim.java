@@ -26,9 +26,13 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.Infallible;
 
 import java.util.List;
 
@@ -39,11 +43,14 @@ import java.util.List;
 @Name(LeftTrim.NAME)
 @Categories(categories = { "transform"})
 @Description("Trimming whitespace from left side of a string.")
-public class LeftTrim implements Directive {
+public class LeftTrim implements Directive, Mutator, Infallible {
   public static final String NAME = "ltrim";
   // Columns of the column to be upper-cased
   private String col;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -56,6 +63,13 @@ public class LeftTrim implements Directive {
     this.col = ((ColumnName) args.value("column")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(col, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -64,7 +78,8 @@ public class LeftTrim implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(col);
+      int idx = row.find(col, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
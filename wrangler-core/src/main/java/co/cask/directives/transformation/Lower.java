@@ -26,9 +26,13 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.Infallible;
 
 import java.util.List;
 
@@ -39,11 +43,14 @@ import java.util.List;
 @Name(Lower.NAME)
 @Categories(categories = { "transform"})
 @Description("Changes the column values to lowercase.")
-public class Lower implements Directive {
+public class Lower implements Directive, Mutator, Infallible {
   public static final String NAME = "lowercase";
   // Columns of the column to be lower cased.
   private String column;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -56,6 +63,13 @@ public class Lower implements Directive {
     this.column = ((ColumnName) args.value("column")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -64,7 +78,8 @@ public class Lower implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
@@ -60,7 +63,7 @@ import java.util.List;
 @Name(MaskNumber.NAME)
 @Categories(categories = { "transform"})
 @Description("Masks a column value using the specified masking pattern.")
-public class MaskNumber implements Directive {
+public class MaskNumber implements Directive, Mutator {
   public static final String NAME = "mask-number";
   // Specifies types of mask
   public static final int MASK_NUMBER = 1;
@@ -72,6 +75,9 @@ public class MaskNumber implements Directive {
   // Column on which to apply mask.
   private String column;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -86,6 +92,13 @@ public class MaskNumber implements Directive {
     this.mask = ((Text) args.value("mask")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -94,7 +107,8 @@ public class MaskNumber implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         String value = TypeConvertor.toString(row.getValue(idx));
         if (value == null) {
@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
@@ -52,11 +55,14 @@ import java.util.Random;
 @Name(MaskShuffle.NAME)
 @Categories(categories = { "transform"})
 @Description("Masks a column value by shuffling characters while maintaining the same length.")
-public class MaskShuffle implements Directive {
+public class MaskShuffle implements Directive, Mutator {
   public static final String NAME = "mask-shuffle";
   // Column on which to apply mask.
   private String column;
 
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -69,6 +75,13 @@ public class MaskShuffle implements Directive {
     this.column = ((ColumnName) args.value("column")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -79,7 +92,8 @@ public class MaskShuffle implements Directive {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
       Row masked = new Row(row);
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         masked.setValue(idx, maskShuffle((String) row.getValue(idx), 0));
       } else {
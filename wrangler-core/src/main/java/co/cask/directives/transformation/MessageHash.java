@@ -27,6 +27,9 @@ import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.Bool;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
@@ -47,7 +50,7 @@ import java.util.Set;
 @Name(MessageHash.NAME)
 @Categories(categories = { "transform", "hash"})
 @Description("Creates a message digest for the column using algorithm, replacing the column value.")
-public class MessageHash implements Directive {
+public class MessageHash implements Directive, Mutator {
   public static final String NAME = "hash";
   private static final Set<String> algorithms = ImmutableSet.of(
     "BLAKE2B-160",
@@ -103,6 +106,7 @@ public class MessageHash implements Directive {
   private String column;
   private boolean encode;
   private MessageDigest digest;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -138,6 +142,13 @@ public class MessageHash implements Directive {
     }
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -150,7 +161,8 @@ public class MessageHash implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         byte[] message;
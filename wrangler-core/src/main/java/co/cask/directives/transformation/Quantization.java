@@ -27,6 +27,9 @@ import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.Triplet;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.Ranges;
@@ -46,7 +49,7 @@ import java.util.List;
 @Name(Quantization.NAME)
 @Categories(categories = { "transform"})
 @Description("Quanitize the range of numbers into label values.")
-public class Quantization implements Directive {
+public class Quantization implements Directive, Mutator {
   public static final String NAME = "quantize";
   private static final String RANGE_PATTERN="([+-]?\\d+(?:\\.\\d+)?):([+-]?\\d+(?:\\.\\d+)?)=(.[^,]*)";
   private final RangeMap<Double, String> rangeMap = TreeRangeMap.create();
@@ -74,6 +77,14 @@ public class Quantization implements Directive {
     }
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(col1, MutationType.READ);
+    builder.addMutation(col2, MutationType.ADD);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
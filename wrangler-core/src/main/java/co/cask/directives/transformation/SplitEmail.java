@@ -43,6 +43,7 @@ import java.util.List;
 public class SplitEmail implements Directive {
   public static final String NAME = "split-email";
   private String column;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -64,7 +65,8 @@ public class SplitEmail implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object == null) {
@@ -44,6 +44,7 @@ import java.util.List;
 public class SplitURL implements Directive {
   public static final String NAME = "split-url";
   private String column;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -65,7 +66,8 @@ public class SplitURL implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
 
@@ -26,9 +26,13 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.optimizer.Infallible;
 import org.apache.commons.lang.WordUtils;
 
 import java.util.List;
@@ -40,9 +44,10 @@ import java.util.List;
 @Name(TitleCase.NAME)
 @Categories(categories = { "transform"})
 @Description("Changes the column values to title case.")
-public class TitleCase implements Directive {
+public class TitleCase implements Directive, Mutator, Infallible {
   public static final String NAME = "titlecase";
   private String column;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -56,6 +61,13 @@ public class TitleCase implements Directive {
     this.column = ((ColumnName) args.value("column")).value();
   }
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.MODIFY);
+    return builder.build();
+  }
+
   @Override
   public void destroy() {
     // no-op
@@ -64,7 +76,8 @@ public class TitleCase implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof String) {
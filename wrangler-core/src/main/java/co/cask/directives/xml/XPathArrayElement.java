@@ -60,6 +60,7 @@ public class XPathArrayElement implements Directive {
   private String destination;
   private String xpath;
   private String attribute;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -87,7 +88,8 @@ public class XPathArrayElement implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     List<String> values = new ArrayList<>();
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof VTDNav) {
@@ -57,6 +57,7 @@ public class XPathElement implements Directive {
   private String destination;
   private String xpath;
   private String attribute;
+  private int slot = -1;
 
   @Override
   public UsageDefinition define() {
@@ -83,7 +84,8 @@ public class XPathElement implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object instanceof VTDNav) {
@@ -53,6 +53,10 @@ public class XmlParser implements Directive {
   public static final String NAME = "parse-as-xml";
   // Column within the input row that needs to be parsed as CSV
   private String column;
+
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
   private final VTDGen vg = new VTDGen();
 
   @Override
@@ -77,7 +81,8 @@ public class XmlParser implements Directive {
     throws DirectiveExecutionException {
 
     for (Row row : rows) {
-      int idx = row.find(column);
+      int idx = row.find(column, slot);
+      slot = idx;
       if (idx == -1) {
         continue; // didn't find the column.
       }
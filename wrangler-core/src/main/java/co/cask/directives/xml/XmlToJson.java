@@ -32,14 +32,20 @@ import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.utils.XmlJsonConverter;
 import com.google.gson.JsonObject;
 import org.json.JSONException;
 import org.json.XML;
 
 import java.util.List;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * A XML to Json Parser Stage.
+ *
+ * <p>Documents are converted in a single pass by a {@link XmlJsonConverter}, and then flattened
+ * into the row. Documents the converter can't read, as they are not well formed, are converted by
+ * {@link XML#toJSONObject(String)}, which is more lenient and reports the failures.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("parse-xml-to-json")
@@ -50,6 +56,8 @@ public class XmlToJson implements Directive {
   // Column within the input row that needs to be parsed as Json
   private String col;
   private int depth;
+  private int slot = -1;
+  private transient XmlJsonConverter converter;
 
   @Override
   public UsageDefinition define() {
@@ -77,7 +85,8 @@ public class XmlToJson implements Directive {
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
-      int idx = row.find(col);
+      int idx = row.find(col, slot);
+      slot = idx;
       if (idx != -1) {
         Object object = row.getValue(idx);
         if (object == null) {
@@ -86,7 +95,7 @@ public class XmlToJson implements Directive {
 
         try {
           if (object instanceof String) {
-            JsonObject element = JsParser.convert(XML.toJSONObject((String) object)).getAsJsonObject();
+            JsonObject element = convert((String) object);
             JsParser.flattenJson(element, col, 1, depth, row);
             row.remove(idx);
           } else {
@@ -103,4 +112,14 @@ public class XmlToJson implements Directive {
     return rows;
   }
 
+  private JsonObject convert(String xml) {
+    if (converter == null) {
+      converter = new XmlJsonConverter();
+    }
+    try {
+      return converter.convert(xml);
+    } catch (XMLStreamException e) {
+      return JsParser.convert(XML.toJSONObject(xml)).getAsJsonObject();
+    }
+  }
 }
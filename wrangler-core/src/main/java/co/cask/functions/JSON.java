@@ -16,6 +16,7 @@
 
 package co.cask.functions;
 
+import co.cask.wrangler.utils.JsonPaths;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -24,6 +25,7 @@ import com.google.gson.JsonPrimitive;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.spi.json.GsonJsonProvider;
 import com.jayway.jsonpath.spi.mapper.GsonMappingProvider;
 
@@ -46,6 +48,8 @@ public final class JSON {
 
   private static final JsonParser PARSER = new JsonParser();
 
+  private static final ParseContext PARSE_CONTEXT = JsonPath.using(GSON_CONFIGURATION);
+
   public static final JsonElement select(String json, String path, String ...paths) {
     JsonElement element = PARSER.parse(json);
     return select(element, path, paths);
@@ -64,14 +68,14 @@ public final class JSON {
     if (toLower) {
       element = keysToLower(element);
     }
-    DocumentContext context = JsonPath.using(GSON_CONFIGURATION).parse(element);
+    DocumentContext context = PARSE_CONTEXT.parse(element);
     if (paths.length == 0) {
-      return context.read(path);
+      return context.read(JsonPaths.compile(path));
     } else {
       JsonArray array = new JsonArray();
-      array.add((JsonElement)context.read(path));
+      array.add((JsonElement)context.read(JsonPaths.compile(path)));
       for (String p : paths) {
-        array.add((JsonElement)context.read(p));
+        array.add((JsonElement)context.read(JsonPaths.compile(p)));
       }
       return array;
     }
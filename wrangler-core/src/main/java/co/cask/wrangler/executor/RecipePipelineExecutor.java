@@ -26,27 +26,149 @@ import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.Executor;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipeIterator;
 import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.Sequential;
+import co.cask.wrangler.api.StreamingDirective;
+import co.cask.wrangler.optimizer.ParallelLineParser;
+import co.cask.wrangler.optimizer.RecipeOptimizer;
 import co.cask.wrangler.utils.RecordConvertor;
 import co.cask.wrangler.utils.RecordConvertorException;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 
 /**
  * The class <code>RecipePipelineExecutor</code> compiles the recipe and executes
- * the directives.
+ * the directives. The directives are rewritten by the {@link RecipeOptimizer} before
+ * being executed.
+ *
+ * <p>By default rows are pushed through the recipe one at a time. When constructed with a
+ * batch size greater than one, the executor pushes chunks of rows through each directive in
+ * turn, so that the per-invocation cost of a directive is paid once per chunk instead of
+ * once per row. Recipes having a directive that requires sequential execution, see
+ * {@link Sequential}, are always executed a row at a time, as such a directive depends on the
+ * order in which it sees the rows and can't be replayed on a chunk it partially executed.</p>
+ *
+ * <p>When constructed with a parallelism greater than one, the executor splits the rows into
+ * contiguous partitions executed on a {@link ForkJoinPool}, each partition with its own set of
+ * directive instances. The results and errors of the partitions are merged in the order of the
+ * input. Recipes having a directive that requires sequential execution, see {@link Sequential},
+ * are always executed sequentially.</p>
+ *
+ * <p>Rows can also be streamed through the recipe, in which case they are pulled through the
+ * directives as they are needed, see {@link #execute(Iterator)}. With a batch size greater than
+ * one, the rows waiting to be passed to a directive are passed to it in chunks of up to the batch
+ * size, unless the recipe has to be executed a row at a time.</p>
  */
 public final class RecipePipelineExecutor implements RecipePipeline<Row, StructuredRecord, ErrorRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(RecipePipelineExecutor.class);
+
+  // Number of rows pushed through the recipe in one go by the batch mode.
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
   private ExecutorContext context;
   private List<Executor> directives;
   private final ErrorRecordCollector collector = new ErrorRecordCollector();
   private RecordConvertor convertor = new RecordConvertor();
+  private final RecipeOptimizer optimizer;
+
+  // Number of rows passed to each directive per invocation, 1 being row-at-a-time execution.
+  private final int batchSize;
+
+  // Maximum number of partitions executed in parallel, 1 being sequential execution.
+  private final int parallelism;
+
+  // Whether a directive of the recipe requires the rows to be executed in order, one at a time.
+  private boolean sequential;
+
+  // Parser of the recipe, used for creating the directives of each partition.
+  private RecipeParser parser;
+
+  // Set of directives for each of the partitions, created when the rows are first partitioned.
+  private List<List<Executor>> partitionDirectives;
+
+  // Pool executing the partitions, created along with the directives of the partitions.
+  private transient ForkJoinPool pool;
+
+  public RecipePipelineExecutor() {
+    this(1);
+  }
+
+  /**
+   * Creates an executor that pushes rows through the directives in chunks of <code>batchSize</code>.
+   *
+   * @param batchSize number of rows to be passed to each directive per invocation.
+   */
+  public RecipePipelineExecutor(int batchSize) {
+    this(batchSize, 1);
+  }
+
+  /**
+   * Creates an executor that executes up to <code>parallelism</code> partitions of the rows in
+   * parallel, pushing rows through the directives in chunks of <code>batchSize</code> within
+   * each partition. A partition holds at least <code>batchSize</code> rows.
+   *
+   * @param batchSize number of rows to be passed to each directive per invocation.
+   * @param parallelism maximum number of partitions to be executed in parallel.
+   */
+  public RecipePipelineExecutor(int batchSize, int parallelism) {
+    this(batchSize, parallelism, null);
+  }
+
+  /**
+   * Creates an executor whose rows are only used for the given columns, which allows the
+   * directives only computing other columns to be skipped, see {@link RecipeOptimizer}.
+   *
+   * @param batchSize number of rows to be passed to each directive per invocation.
+   * @param parallelism maximum number of partitions to be executed in parallel.
+   * @param outputColumns names of the columns used from the rows, null if all are used.
+   */
+  public RecipePipelineExecutor(int batchSize, int parallelism, @Nullable Collection<String> outputColumns) {
+    this(batchSize, parallelism, outputColumns, true);
+  }
+
+  /**
+   * Creates an executor whose rows are only used for the given columns, which allows the
+   * directives only computing other columns to be skipped unless told otherwise, see
+   * {@link RecipeOptimizer}.
+   *
+   * @param batchSize number of rows to be passed to each directive per invocation.
+   * @param parallelism maximum number of partitions to be executed in parallel.
+   * @param outputColumns names of the columns used from the rows, null if all are used.
+   * @param skipUnusedDirectives false if all the directives of the recipe are to be executed.
+   */
+  public RecipePipelineExecutor(int batchSize, int parallelism, @Nullable Collection<String> outputColumns,
+                                boolean skipUnusedDirectives) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        String.format("Batch size should be greater than zero, found %d.", batchSize)
+      );
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+        String.format("Parallelism should be greater than zero, found %d.", parallelism)
+      );
+    }
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+    this.optimizer = new RecipeOptimizer(outputColumns, skipUnusedDirectives);
+  }
 
   /**
    * Configures the pipeline based on the directives. It parses the recipe,
@@ -57,8 +179,10 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   @Override
   public void initialize(RecipeParser parser, ExecutorContext context) throws RecipeException {
     this.context = context;
+    this.parser = parser;
     try {
-      this.directives = parser.parse();
+      this.directives = optimizer.optimize(parser.parse());
+      this.sequential = requiresSequentialExecution(directives);
     } catch (DirectiveParseException e) {
       throw new RecipeException(e.getMessage());
     } catch (DirectiveNotFoundException | DirectiveLoadException e) {
@@ -66,19 +190,43 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
     }
   }
 
+  /**
+   * Finds the columns written by the recipe, once the executor is initialized. The other columns
+   * of the rows passed to the recipe are left as is by the recipe.
+   *
+   * @return lower cased names of the columns written, null if not known.
+   * @see RecipeOptimizer#writtenColumns(List)
+   */
+  @Nullable
+  public Set<String> writtenColumns() {
+    return RecipeOptimizer.writtenColumns(directives);
+  }
+
   /**
    * Invokes each directives destroy method to perform any cleanup
    * required by each individual directive.
    */
   @Override
   public void destroy() {
-    for(Executor directive : directives) {
-      try {
-        directive.destroy();
-      } catch (Exception e) {
-        LOG.warn(e.getMessage());
-      } catch (Throwable t) {
-        LOG.warn(t.getMessage());
+    if (pool != null) {
+      pool.shutdown();
+    }
+    List<List<Executor>> sets = partitionDirectives;
+    if (sets == null) {
+      sets = new ArrayList<>();
+      if (directives != null) {
+        sets.add(directives);
+      }
+    }
+    for (List<Executor> set : sets) {
+      for(Executor directive : set) {
+        try {
+          directive.destroy();
+        } catch (Exception e) {
+          LOG.warn(e.getMessage());
+        } catch (Throwable t) {
+          LOG.warn(t.getMessage());
+        }
       }
     }
   }
@@ -111,30 +259,393 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   @Override
   public List<Row> execute(List<Row> rows) throws RecipeException {
     List<Row> results = Lists.newArrayList();
+    collector.reset();
+    int partitions = Math.min(parallelism, (rows.size() + batchSize - 1) / batchSize);
+    if (partitions > 1 && !sequential) {
+      execute(rows, partitions, results);
+      return results;
+    }
+    try {
+      execute(directives, rows, results, collector);
+    } catch (DirectiveExecutionException e) {
+      throw new RecipeException(e);
+    }
+    return results;
+  }
+
+  /**
+   * Executes the rows split into partitions, the partitions being executed in parallel.
+   *
+   * @param rows to be wrangled.
+   * @param partitions number of partitions to split the rows into.
+   * @param results to which the wrangled rows are added, in the order of the input.
+   */
+  private void execute(List<Row> rows, int partitions, List<Row> results) throws RecipeException {
+    if (partitionDirectives == null) {
+      createPartitionDirectives();
+    }
+
+    int size = (rows.size() + partitions - 1) / partitions;
+    List<Partition> tasks = new ArrayList<>(partitions);
+    for (int start = 0; start < rows.size(); start += size) {
+      int end = Math.min(start + size, rows.size());
+      tasks.add(new Partition(partitionDirectives.get(tasks.size()), rows.subList(start, end)));
+    }
+
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RecipeException("Interrupted while executing the recipe.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DirectiveExecutionException) {
+        throw new RecipeException((DirectiveExecutionException) cause);
+      }
+      throw new RecipeException(cause.getMessage(), cause);
+    }
+
+    // Each partition shares the headers between its rows, so the results are merged as is.
+    for (Partition task : tasks) {
+      results.addAll(task.results);
+      for (ErrorRecord error : task.errors.get()) {
+        collector.add(error);
+      }
+    }
+  }
+
+  /**
+   * Checks whether any of the directives depends on processing all the rows in order, one at a
+   * time, in which case the rows can be neither partitioned nor chunked.
+   *
+   * @param directives of the recipe.
+   * @return true if the recipe has to be executed sequentially, a row at a time.
+   */
+  private static boolean requiresSequentialExecution(List<Executor> directives) {
+    for (Executor directive : directives) {
+      if (directive instanceof Sequential && ((Sequential) directive).requiresSequentialExecution()) {
+        LOG.debug("Executing the recipe sequentially, as directive '{}' requires sequential execution.",
+                  directive.getClass().getSimpleName());
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates a set of directives for each partition, as directives hold state that can't be shared
+   * between threads. The first partition uses the directives of the executor.
+   */
+  private void createPartitionDirectives() throws RecipeException {
+    List<List<Executor>> sets = new ArrayList<>(parallelism);
+    sets.add(directives);
     try {
+      while (sets.size() < parallelism) {
+        sets.add(optimizer.optimize(parser.parse()));
+      }
+    } catch (DirectiveParseException e) {
+      throw new RecipeException(e.getMessage());
+    } catch (DirectiveNotFoundException | DirectiveLoadException e) {
+      throw new RecipeException(e.getMessage(), e);
+    }
+    partitionDirectives = sets;
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Executes the directives on the rows, either a row at a time or in chunks of rows. Recipes
+   * requiring sequential execution are always executed a row at a time.
+   *
+   * @param directives to be executed.
+   * @param rows to be wrangled.
+   * @param results to which the wrangled rows are added.
+   * @param errors to which the rows that errored out are added.
+   */
+  private void execute(List<Executor> directives, List<Row> rows, List<Row> results, ErrorRecordCollector errors)
+    throws DirectiveExecutionException {
+    if (batchSize == 1 || sequential) {
+      for (Row row : rows) {
+        execute(directives, row, results, errors);
+      }
+    } else {
       int i = 0;
-      collector.reset();
       while (i < rows.size()) {
-        List<Row> newRows = rows.subList(i, i+1);
+        int end = Math.min(i + batchSize, rows.size());
+        executeChunk(directives, rows.subList(i, end), results, errors);
+        i = end;
+      }
+    }
+  }
+
+  /**
+   * Executes the pipeline on the input, pulling the rows through the directives as they are needed.
+   *
+   * <p>Directives implementing {@link StreamingDirective} generate their rows lazily, so the rows
+   * held in memory are bounded by the number of directives and the batch size rather than the
+   * number of rows generated from an input row. Other directives are executed on the rows waiting
+   * for them, in chunks of up to the batch size, holding the rows they generate until those are
+   * pulled through the rest of the recipe. Recipes requiring sequential execution pass the rows
+   * to these directives one at a time.</p>
+   *
+   * <p>As with the list based execution in chunks, a row rejected by a directive with
+   * {@link ErrorRowException} only routes that row to the error collector, the other rows
+   * generated from the same input row continue through the recipe.</p>
+   *
+   * @param rows Iterator over the input rows.
+   * @return Iterator over the wrangled rows.
+   */
+  @Override
+  public RecipeIterator<Row> execute(Iterator<Row> rows) {
+    collector.reset();
+    return new RowIterator(rows);
+  }
+
+  /**
+   * Executes all the directives on a single row, routing the row to the error collector
+   * if any of the directives rejects it.
+   *
+   * @param directives to be executed.
+   * @param row to be wrangled.
+   * @param results to which the wrangled rows are added.
+   * @param errors to which the row is added if it errors out.
+   */
+  private void execute(List<Executor> directives, Row row, List<Row> results,
+                       ErrorRecordCollector errors) throws DirectiveExecutionException {
+    List<Row> newRows = new ArrayList<>(1);
+    newRows.add(row);
+    try {
+      for (Executor<List<Row>, List<Row>> directive : directives) {
+        newRows = directive.execute(newRows, context);
+        if (newRows.size() < 1) {
+          break;
+        }
+      }
+      if(newRows.size() > 0) {
+        collect(newRows, results);
+      }
+    } catch (ErrorRowException e) {
+      errors.add(new ErrorRecord(newRows.get(0), e.getMessage(), e.getCode()));
+    }
+  }
+
+  /**
+   * Executes all the directives on a chunk of rows, each directive being invoked once for
+   * the whole chunk.
+   *
+   * <p>A directive rejecting a row with {@link ErrorRowException} aborts its invocation for the
+   * whole chunk, so only that directive is replayed, one row at a time, on the rows it was passed,
+   * see {@link #execute(Executor, List, ErrorRecordCollector)}. This routes the offending rows to
+   * the error collector while the rest of the chunk continues through the recipe. Chunks are only
+   * used for recipes without directives requiring sequential execution, which are the directives
+   * keeping state between rows, such as the header of a CSV or the variables of the
+   * {@link co.cask.wrangler.api.TransientStore}.</p>
+   *
+   * @param directives to be executed.
+   * @param rows chunk of rows to be wrangled.
+   * @param results to which the wrangled rows are added.
+   * @param errors to which the rows that errored out are added.
+   */
+  private void executeChunk(List<Executor> directives, List<Row> rows, List<Row> results,
+                            ErrorRecordCollector errors) throws DirectiveExecutionException {
+    List<Row> newRows = rows;
+    for (Executor<List<Row>, List<Row>> directive : directives) {
+      newRows = execute(directive, newRows, errors);
+      if (newRows.size() < 1) {
+        break;
+      }
+    }
+    if(newRows.size() > 0) {
+      collect(newRows, results);
+    }
+  }
+
+  /**
+   * Executes a directive on a chunk of rows. A row rejected with {@link ErrorRowException}
+   * aborts the invocation for the whole chunk, so the directive is replayed one row at a time
+   * from a copy of the chunk, the rows it rejects being added to the errors. The directives
+   * before it are not replayed, as the chunk holds the rows they generated.
+   *
+   * @param directive to be executed.
+   * @param chunk of rows to be passed to the directive.
+   * @param errors to which the rows that errored out are added.
+   * @return rows generated by the directive.
+   */
+  private List<Row> execute(Executor<List<Row>, List<Row>> directive, List<Row> chunk,
+                            ErrorRecordCollector errors) throws DirectiveExecutionException {
+    if (chunk.size() == 1) {
+      try {
+        return directive.execute(chunk, context);
+      } catch (ErrorRowException e) {
+        errors.add(new ErrorRecord(chunk.get(0), e.getMessage(), e.getCode()));
+        return new ArrayList<>(0);
+      }
+    }
+
+    // Directives mutate rows in place, hence the input is preserved for replaying the chunk.
+    List<Row> input = new ArrayList<>(chunk.size());
+    for (Row row : chunk) {
+      input.add(new Row(row));
+    }
+    try {
+      return directive.execute(chunk, context);
+    } catch (ErrorRowException e) {
+      List<Row> results = new ArrayList<>();
+      for (Row row : input) {
+        List<Row> newRows = new ArrayList<>(1);
+        newRows.add(row);
         try {
-          for (Executor<List<Row>, List<Row>> directive : directives) {
-            newRows = directive.execute(newRows, context);
-            if (newRows.size() < 1) {
-              break;
+          results.addAll(directive.execute(newRows, context));
+        } catch (ErrorRowException ex) {
+          errors.add(new ErrorRecord(row, ex.getMessage(), ex.getCode()));
+        }
+      }
+      return results;
+    }
+  }
+
+  /**
+   * Adds the wrangled rows to the results. Rows having the same columns as the row before
+   * them share its header, so that the results don't hold a copy of the column names per row.
+   *
+   * @param rows wrangled by the directives.
+   * @param results to which the rows are added.
+   */
+  private static void collect(List<Row> rows, List<Row> results) {
+    for (Row row : rows) {
+      if (results.size() > 0) {
+        row.shareColumns(results.get(results.size() - 1));
+      }
+      results.add(row);
+    }
+  }
+
+  /**
+   * A partition of the rows, executed with a set of directives used by no other partition.
+   */
+  private final class Partition implements Callable<Void> {
+    private final List<Executor> directives;
+    private final List<Row> rows;
+    private final List<Row> results = new ArrayList<>();
+    private final ErrorRecordCollector errors = new ErrorRecordCollector();
+
+    private Partition(List<Executor> directives, List<Row> rows) {
+      this.directives = directives;
+      this.rows = rows;
+    }
+
+    @Override
+    public Void call() throws DirectiveExecutionException {
+      execute(directives, rows, results, errors);
+      return null;
+    }
+  }
+
+  /**
+   * Pulls rows through the directives depth first. Each directive has a stage holding the rows
+   * it generated which are yet to be passed to the next directive, a row being pulled from the
+   * deepest stage having rows left, or the input when all the stages are drained.
+   *
+   * <p>A {@link ParallelLineParser} is executed as the directives it fuses, so that the lines
+   * are generated lazily rather than all parsed at once.</p>
+   */
+  private final class RowIterator implements RecipeIterator<Row> {
+    private final Iterator<Row> input;
+    private final List<Executor> directives;
+    private final List<Iterator<Row>> stages;
+    private final int chunkSize;
+    private Row next;
+    private Row last;
+
+    private RowIterator(Iterator<Row> input) {
+      this.input = input;
+      this.directives = new ArrayList<>();
+      for (Executor directive : RecipePipelineExecutor.this.directives) {
+        if (directive instanceof ParallelLineParser) {
+          directives.add(((ParallelLineParser) directive).getSplitter());
+          directives.add(((ParallelLineParser) directive).getParser());
+        } else {
+          directives.add(directive);
+        }
+      }
+      this.chunkSize = sequential ? 1 : batchSize;
+      this.stages = new ArrayList<>(directives.size());
+      for (int i = 0; i < directives.size(); ++i) {
+        stages.add(Collections.<Row>emptyIterator());
+      }
+    }
+
+    @Override
+    public boolean hasNext() throws RecipeException {
+      if (next == null) {
+        next = advance();
+      }
+      return next != null;
+    }
+
+    @Override
+    public Row next() throws RecipeException {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Row row = next;
+      next = null;
+      // Share the header with the previous row, as collect does for the list based execution.
+      if (last != null) {
+        row.shareColumns(last);
+      }
+      last = row;
+      return row;
+    }
+
+    /**
+     * Executes the directives until a row makes it through all of them.
+     *
+     * @return next wrangled row, null if the input is exhausted.
+     */
+    @SuppressWarnings("unchecked")
+    private Row advance() throws RecipeException {
+      while (true) {
+        int level = stages.size();
+        while (level > 0 && !stages.get(level - 1).hasNext()) {
+          level--;
+        }
+
+        Row row;
+        if (level > 0) {
+          row = stages.get(level - 1).next();
+        } else if (input.hasNext()) {
+          row = input.next();
+        } else {
+          return null;
+        }
+
+        if (level == stages.size()) {
+          return row;
+        }
+
+        Executor<List<Row>, List<Row>> directive = directives.get(level);
+        try {
+          if (directive instanceof StreamingDirective) {
+            stages.set(level, ((StreamingDirective) directive).stream(row, context));
+          } else {
+            // Rows already waiting for the directive are passed along in the same chunk.
+            Iterator<Row> source = level > 0 ? stages.get(level - 1) : input;
+            List<Row> chunk = new ArrayList<>(1);
+            chunk.add(row);
+            while (chunk.size() < chunkSize && source.hasNext()) {
+              chunk.add(source.next());
             }
-          }
-          if(newRows.size() > 0) {
-            results.addAll(newRows);
+            stages.set(level, execute(directive, chunk, collector).iterator());
           }
         } catch (ErrorRowException e) {
-          collector.add(new ErrorRecord(newRows.get(0), e.getMessage(), e.getCode()));
+          collector.add(new ErrorRecord(row, e.getMessage(), e.getCode()));
+        } catch (DirectiveExecutionException e) {
+          throw new RecipeException(e);
         }
-        i++;
       }
-    } catch (DirectiveExecutionException e) {
-      throw new RecipeException(e);
     }
-    return results;
   }
 
   /**
@@ -0,0 +1,636 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import co.cask.directives.RowContext;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.expression.ExpressionCompiler.Binary;
+import co.cask.wrangler.expression.ExpressionCompiler.Literal;
+import co.cask.wrangler.expression.ExpressionCompiler.Logical;
+import co.cask.wrangler.expression.ExpressionCompiler.Negate;
+import co.cask.wrangler.expression.ExpressionCompiler.Not;
+import co.cask.wrangler.expression.ExpressionCompiler.Ternary;
+import co.cask.wrangler.expression.ExpressionCompiler.Variable;
+
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates a compiled expression over a batch of rows at once, applying each operator of the
+ * expression over vectors holding the values of all the rows, instead of evaluating the whole
+ * expression row by row.
+ *
+ * <p>Expressions computing or comparing numbers in double precision, such as
+ * <code>price * qty</code> or <code>price * qty &gt; 100 &amp;&amp; discount == 0.0</code>, are
+ * vectorized. The columns read are loaded into arrays of doubles, along with which of the values
+ * are floating point, and the operators are applied over the arrays. JEXL computes in double
+ * precision when one of the operands is floating point, so an operation is only applied on the
+ * rows where one of its operands is.</p>
+ *
+ * <p>Rows on which the expression can't be evaluated that way are flagged, and are evaluated row
+ * by row through the {@link ScriptEvaluator} instead, which reports failures as JEXL does. Those
+ * are the rows missing a column or holding a value other than a number for it, including null,
+ * holding NaN, or on which an operation would divide by zero or compute on integers.</p>
+ *
+ * <p>An evaluator remembers where the columns were found, so it's meant to be used by a single
+ * thread, as the directives are.</p>
+ */
+public final class BatchEvaluator {
+  // Minimum number of rows for which evaluating the rows at once pays off.
+  public static final int MIN_ROWS = 8;
+
+  private final ScriptEvaluator evaluator;
+  private final Vector root;
+
+  private BatchEvaluator(ScriptEvaluator evaluator, Vector root) {
+    this.evaluator = evaluator;
+    this.root = root;
+  }
+
+  /**
+   * Creates an evaluator of batches for an expression, if it can be vectorized.
+   *
+   * @param evaluator of the expression row by row.
+   * @return evaluator of batches, null if the expression isn't compiled or can't be vectorized.
+   */
+  @Nullable
+  public static BatchEvaluator of(ScriptEvaluator evaluator) {
+    Node node = evaluator.node();
+    if (node == null) {
+      return null;
+    }
+    Vector root = doubles(node);
+    if (root == null) {
+      root = booleans(node);
+    }
+    return root == null ? null : new BatchEvaluator(evaluator, root);
+  }
+
+  /**
+   * Evaluates the expression over a batch of rows.
+   *
+   * @param rows on which the expression is evaluated.
+   * @param context used for evaluating the expression on the rows that are not vectorized.
+   * @param store of the variables set by the directives, null if there is none.
+   * @return result of the expression for each of the rows.
+   * @throws org.apache.commons.jexl3.JexlException if the expression fails on one of the rows.
+   */
+  public Object[] evaluate(List<Row> rows, RowContext context, @Nullable TransientStore store) {
+    Batch batch = new Batch(rows.toArray(new Row[rows.size()]), store);
+    Object[] results = root.results(batch);
+    for (int i = 0; i < batch.size; ++i) {
+      if (batch.fallback[i]) {
+        results[i] = evaluator.evaluate(context.reset(batch.rows[i], store));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Vectorizes a node computing a number, as a double or, for integer literals and columns, as
+   * an integer converted to a double.
+   *
+   * @return vectorized node, null if the node can't be vectorized.
+   */
+  @Nullable
+  private static DoubleVector doubles(Node node) {
+    if (node instanceof Literal) {
+      Object value = ((Literal) node).value;
+      if (value instanceof Double) {
+        return new DoubleConstant((Double) value, true);
+      }
+      if (value instanceof Integer || value instanceof Long) {
+        return new DoubleConstant(((Number) value).doubleValue(), false);
+      }
+      return null;
+    }
+    if (node instanceof Variable) {
+      String name = ((Variable) node).name;
+      return "this".equals(name) ? null : new DoubleColumn(name);
+    }
+    if (node instanceof Binary) {
+      Binary binary = (Binary) node;
+      if ("+-*/%".indexOf(binary.op) == -1) {
+        return null;
+      }
+      DoubleVector left = doubles(binary.left);
+      DoubleVector right = doubles(binary.right);
+      return left == null || right == null ? null : new Arithmetic(binary.op, left, right);
+    }
+    if (node instanceof Negate) {
+      DoubleVector operand = doubles(((Negate) node).operand);
+      return operand == null ? null : new Negation(operand);
+    }
+    if (node instanceof Ternary) {
+      Ternary ternary = (Ternary) node;
+      BooleanVector condition = booleans(ternary.condition);
+      DoubleVector first = doubles(ternary.first);
+      DoubleVector second = doubles(ternary.second);
+      if (condition == null || first == null || second == null) {
+        return null;
+      }
+      return new DoubleChoice(condition, first, second);
+    }
+    return null;
+  }
+
+  /**
+   * Vectorizes a node computing a boolean.
+   *
+   * @return vectorized node, null if the node can't be vectorized.
+   */
+  @Nullable
+  private static BooleanVector booleans(Node node) {
+    if (node instanceof Literal) {
+      Object value = ((Literal) node).value;
+      return value instanceof Boolean ? new BooleanConstant((Boolean) value) : null;
+    }
+    if (node instanceof Binary) {
+      Binary binary = (Binary) node;
+      if ("=!<>".indexOf(binary.op) == -1) {
+        return null;
+      }
+      DoubleVector left = doubles(binary.left);
+      DoubleVector right = doubles(binary.right);
+      return left == null || right == null ? null : new Comparison(binary.op, binary.inclusive, left, right);
+    }
+    if (node instanceof Logical) {
+      Logical logical = (Logical) node;
+      BooleanVector left = booleans(logical.left);
+      BooleanVector right = booleans(logical.right);
+      return left == null || right == null ? null : new Connective(logical.and, left, right);
+    }
+    if (node instanceof Not) {
+      BooleanVector operand = booleans(((Not) node).operand);
+      return operand == null ? null : new Complement(operand);
+    }
+    if (node instanceof Ternary) {
+      Ternary ternary = (Ternary) node;
+      BooleanVector condition = booleans(ternary.condition);
+      BooleanVector first = booleans(ternary.first);
+      BooleanVector second = booleans(ternary.second);
+      if (condition == null || first == null || second == null) {
+        return null;
+      }
+      return new BooleanChoice(condition, first, second);
+    }
+    return null;
+  }
+
+  /**
+   * Rows of a batch, along with the rows that are to be evaluated row by row.
+   */
+  private static final class Batch {
+    private final Row[] rows;
+    private final int size;
+    private final TransientStore store;
+    private final boolean[] fallback;
+
+    private Batch(Row[] rows, @Nullable TransientStore store) {
+      this.rows = rows;
+      this.size = rows.length;
+      this.store = store;
+      this.fallback = new boolean[rows.length];
+    }
+
+    /**
+     * Checks if a variable is taken from the transient store, which takes precedence over the
+     * columns of the rows.
+     */
+    private boolean isTransient(String name) {
+      if (store == null) {
+        return false;
+      }
+      Set<String> names = store.getVariables();
+      return !names.isEmpty() && names.contains(name);
+    }
+  }
+
+  /**
+   * Numbers computed for each of the rows of a batch.
+   */
+  private static final class Doubles {
+    private final double[] values;
+    // Set for the values that are floating point, as opposed to integers converted to doubles.
+    private final boolean[] floating;
+
+    private Doubles(double[] values, boolean[] floating) {
+      this.values = values;
+      this.floating = floating;
+    }
+  }
+
+  /**
+   * Vectorized node, computing a value for each of the rows of a batch.
+   */
+  private abstract static class Vector {
+    /**
+     * Computes the values for the rows of a batch that are not flagged, flagging the rows on
+     * which the value can't be computed.
+     *
+     * @return values, only set for the rows left not flagged.
+     */
+    abstract Object[] results(Batch batch);
+  }
+
+  /**
+   * Vectorized node computing numbers.
+   */
+  private abstract static class DoubleVector extends Vector {
+    abstract Doubles eval(Batch batch);
+
+    @Override
+    Object[] results(Batch batch) {
+      Doubles doubles = eval(batch);
+      Object[] results = new Object[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        // Integers are left to JEXL, which keeps them as integers.
+        if (!doubles.floating[i]) {
+          batch.fallback[i] = true;
+        } else if (!batch.fallback[i]) {
+          results[i] = doubles.values[i];
+        }
+      }
+      return results;
+    }
+  }
+
+  /**
+   * Vectorized node computing booleans.
+   */
+  private abstract static class BooleanVector extends Vector {
+    abstract boolean[] eval(Batch batch);
+
+    @Override
+    Object[] results(Batch batch) {
+      boolean[] values = eval(batch);
+      Object[] results = new Object[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        if (!batch.fallback[i]) {
+          results[i] = values[i];
+        }
+      }
+      return results;
+    }
+  }
+
+  /**
+   * Numeric literal.
+   */
+  private static final class DoubleConstant extends DoubleVector {
+    private final double value;
+    private final boolean floating;
+
+    private DoubleConstant(double value, boolean floating) {
+      this.value = value;
+      this.floating = floating;
+    }
+
+    @Override
+    Doubles eval(Batch batch) {
+      double[] values = new double[batch.size];
+      boolean[] floatings = new boolean[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        values[i] = value;
+        floatings[i] = floating;
+      }
+      return new Doubles(values, floatings);
+    }
+  }
+
+  /**
+   * Values of a column of the rows, the rows not holding a Double, an Integer or a Long for the
+   * column being flagged. The column is resolved as by {@link RowContext}, by its exact name and
+   * the last of the columns sharing the name, variables of the transient store taking precedence.
+   */
+  private static final class DoubleColumn extends DoubleVector {
+    private final String name;
+    private int slot = -1;
+
+    private DoubleColumn(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Doubles eval(Batch batch) {
+      double[] values = new double[batch.size];
+      boolean[] floating = new boolean[batch.size];
+      boolean all = batch.isTransient(name);
+      for (int i = 0; i < batch.size; ++i) {
+        if (batch.fallback[i]) {
+          continue;
+        }
+        Row row = batch.rows[i];
+        int idx = all ? -1 : row.findLast(name, slot);
+        Object value = null;
+        if (idx != -1) {
+          slot = idx;
+          value = row.getValue(idx);
+        }
+        if (value instanceof Double && !((Double) value).isNaN()) {
+          values[i] = (Double) value;
+          floating[i] = true;
+        } else if (value instanceof Integer || value instanceof Long) {
+          values[i] = ((Number) value).doubleValue();
+        } else {
+          batch.fallback[i] = true;
+        }
+      }
+      return new Doubles(values, floating);
+    }
+  }
+
+  /**
+   * Arithmetic operator, applied on the rows where either of the operands is floating point.
+   */
+  private static final class Arithmetic extends DoubleVector {
+    private final char op;
+    private final DoubleVector left;
+    private final DoubleVector right;
+
+    private Arithmetic(char op, DoubleVector left, DoubleVector right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Doubles eval(Batch batch) {
+      Doubles l = left.eval(batch);
+      Doubles r = right.eval(batch);
+      double[] a = l.values;
+      double[] b = r.values;
+      double[] values = new double[batch.size];
+      boolean[] fallback = batch.fallback;
+      for (int i = 0; i < batch.size; ++i) {
+        if (!l.floating[i] && !r.floating[i]) {
+          fallback[i] = true;
+        }
+      }
+      switch (op) {
+        case '+':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = a[i] + b[i];
+          }
+          break;
+        case '-':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = a[i] - b[i];
+          }
+          break;
+        case '*':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = a[i] * b[i];
+          }
+          break;
+        case '/':
+          for (int i = 0; i < batch.size; ++i) {
+            if (b[i] == 0.0) {
+              fallback[i] = true;
+            } else {
+              values[i] = a[i] / b[i];
+            }
+          }
+          break;
+        default:
+          for (int i = 0; i < batch.size; ++i) {
+            if (b[i] == 0.0) {
+              fallback[i] = true;
+            } else {
+              values[i] = a[i] % b[i];
+            }
+          }
+          break;
+      }
+      return new Doubles(values, all(batch.size));
+    }
+  }
+
+  /**
+   * Unary minus, applied on the rows where the operand is floating point.
+   */
+  private static final class Negation extends DoubleVector {
+    private final DoubleVector operand;
+
+    private Negation(DoubleVector operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Doubles eval(Batch batch) {
+      Doubles o = operand.eval(batch);
+      double[] values = new double[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        if (!o.floating[i]) {
+          batch.fallback[i] = true;
+        }
+        values[i] = -o.values[i];
+      }
+      return new Doubles(values, all(batch.size));
+    }
+  }
+
+  /**
+   * Ternary operator choosing between numbers.
+   */
+  private static final class DoubleChoice extends DoubleVector {
+    private final BooleanVector condition;
+    private final DoubleVector first;
+    private final DoubleVector second;
+
+    private DoubleChoice(BooleanVector condition, DoubleVector first, DoubleVector second) {
+      this.condition = condition;
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    Doubles eval(Batch batch) {
+      // Rows flagged by the branch not chosen are evaluated row by row, which is correct if slower.
+      boolean[] c = condition.eval(batch);
+      Doubles f = first.eval(batch);
+      Doubles s = second.eval(batch);
+      double[] values = new double[batch.size];
+      boolean[] floating = new boolean[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        values[i] = c[i] ? f.values[i] : s.values[i];
+        floating[i] = c[i] ? f.floating[i] : s.floating[i];
+      }
+      return new Doubles(values, floating);
+    }
+  }
+
+  /**
+   * Boolean literal.
+   */
+  private static final class BooleanConstant extends BooleanVector {
+    private final boolean value;
+
+    private BooleanConstant(boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    boolean[] eval(Batch batch) {
+      boolean[] values = new boolean[batch.size];
+      if (value) {
+        for (int i = 0; i < batch.size; ++i) {
+          values[i] = true;
+        }
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Comparison operator, applied on the rows where either of the operands is floating point.
+   */
+  private static final class Comparison extends BooleanVector {
+    private final char op;
+    private final boolean inclusive;
+    private final DoubleVector left;
+    private final DoubleVector right;
+
+    private Comparison(char op, boolean inclusive, DoubleVector left, DoubleVector right) {
+      this.op = op;
+      this.inclusive = inclusive;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean[] eval(Batch batch) {
+      Doubles l = left.eval(batch);
+      Doubles r = right.eval(batch);
+      double[] a = l.values;
+      double[] b = r.values;
+      boolean[] values = new boolean[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        if (!l.floating[i] && !r.floating[i]) {
+          batch.fallback[i] = true;
+        }
+      }
+      switch (op) {
+        case '=':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = a[i] == b[i];
+          }
+          break;
+        case '!':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = a[i] != b[i];
+          }
+          break;
+        case '<':
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = inclusive ? a[i] <= b[i] : a[i] < b[i];
+          }
+          break;
+        default:
+          for (int i = 0; i < batch.size; ++i) {
+            values[i] = inclusive ? a[i] >= b[i] : a[i] > b[i];
+          }
+          break;
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Logical and and or operators.
+   */
+  private static final class Connective extends BooleanVector {
+    private final boolean and;
+    private final BooleanVector left;
+    private final BooleanVector right;
+
+    private Connective(boolean and, BooleanVector left, BooleanVector right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean[] eval(Batch batch) {
+      // Rows flagged by the right operand, which JEXL may not evaluate, are evaluated row by row.
+      boolean[] l = left.eval(batch);
+      boolean[] r = right.eval(batch);
+      boolean[] values = new boolean[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        values[i] = and ? l[i] && r[i] : l[i] || r[i];
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Logical not operator.
+   */
+  private static final class Complement extends BooleanVector {
+    private final BooleanVector operand;
+
+    private Complement(BooleanVector operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    boolean[] eval(Batch batch) {
+      boolean[] values = operand.eval(batch);
+      for (int i = 0; i < batch.size; ++i) {
+        values[i] = !values[i];
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Ternary operator choosing between booleans.
+   */
+  private static final class BooleanChoice extends BooleanVector {
+    private final BooleanVector condition;
+    private final BooleanVector first;
+    private final BooleanVector second;
+
+    private BooleanChoice(BooleanVector condition, BooleanVector first, BooleanVector second) {
+      this.condition = condition;
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    boolean[] eval(Batch batch) {
+      boolean[] c = condition.eval(batch);
+      boolean[] f = first.eval(batch);
+      boolean[] s = second.eval(batch);
+      boolean[] values = new boolean[batch.size];
+      for (int i = 0; i < batch.size; ++i) {
+        values[i] = c[i] ? f[i] : s[i];
+      }
+      return values;
+    }
+  }
+
+  private static boolean[] all(int size) {
+    boolean[] values = new boolean[size];
+    for (int i = 0; i < size; ++i) {
+      values[i] = true;
+    }
+    return values;
+  }
+}
@@ -0,0 +1,661 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import org.apache.commons.jexl3.JexlArithmetic;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.introspection.JexlMethod;
+import org.apache.commons.jexl3.introspection.JexlUberspect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Compiles JEXL expressions into a tree of {@link Node}, each node evaluating its part of the
+ * expression directly, instead of the expression being interpreted by JEXL.
+ *
+ * <p>Only a subset of JEXL is compiled: number, string and boolean literals, variables, the
+ * arithmetic, comparison and logical operators, the ternary operator, calls to the functions
+ * of the namespaces of the engine and calls to the methods of values. The operators are
+ * evaluated by the {@link JexlArithmetic} of the engine and the methods are found through its
+ * {@link JexlUberspect}, so the compiled expressions compute the same values as JEXL. Anything
+ * else, such as property access, assignments or statements, is not compiled.</p>
+ */
+final class ExpressionCompiler {
+  // Words having a meaning in JEXL, which are not compiled when used as identifiers.
+  private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+    "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "div", "mod", "not", "new", "var", "function",
+    "return", "if", "else", "for", "while", "do", "empty", "size", "break", "continue", "in"
+  ));
+
+  private final JexlArithmetic arithmetic;
+  private final JexlUberspect uberspect;
+  private final Map<String, Object> namespaces;
+
+  // Record of the methods called by the expression, shared by all its calls.
+  private final Invocations invocations;
+
+  // Tokens of the expression being compiled.
+  private final List<Token> tokens;
+  private int pos;
+
+  private ExpressionCompiler(JexlEngine engine, Map<String, Object> namespaces, Invocations invocations,
+                             List<Token> tokens) {
+    this.arithmetic = engine.getArithmetic();
+    this.uberspect = engine.getUberspect();
+    this.namespaces = namespaces;
+    this.invocations = invocations;
+    this.tokens = tokens;
+  }
+
+  /**
+   * Compiles an expression.
+   *
+   * @param expression to be compiled.
+   * @param engine whose arithmetic and introspection are used for evaluating the expression.
+   * @param namespaces of the functions of the engine, by prefix.
+   * @param invocations recording the methods called when the compiled expression is evaluated.
+   * @return root of the compiled expression, null if the expression is outside of the subset
+   *         of JEXL that is compiled.
+   */
+  @Nullable
+  static Node compile(String expression, JexlEngine engine, Map<String, Object> namespaces,
+                      Invocations invocations) {
+    List<Token> tokens = tokenize(expression);
+    if (tokens == null) {
+      return null;
+    }
+    ExpressionCompiler compiler = new ExpressionCompiler(engine, namespaces, invocations, tokens);
+    Node node = compiler.ternary();
+    if (node == null || compiler.pos != tokens.size()) {
+      return null;
+    }
+    return node;
+  }
+
+  private Node ternary() {
+    Node condition = or();
+    if (condition == null || !accept("?")) {
+      return condition;
+    }
+    Node first = ternary();
+    if (first == null || !accept(":")) {
+      return null;
+    }
+    Node second = ternary();
+    if (second == null) {
+      return null;
+    }
+    return new Ternary(arithmetic, condition, first, second);
+  }
+
+  private Node or() {
+    Node left = and();
+    while (left != null && accept("||")) {
+      Node right = and();
+      left = right == null ? null : new Logical(arithmetic, false, left, right);
+    }
+    return left;
+  }
+
+  private Node and() {
+    Node left = equality();
+    while (left != null && accept("&&")) {
+      Node right = equality();
+      left = right == null ? null : new Logical(arithmetic, true, left, right);
+    }
+    return left;
+  }
+
+  private Node equality() {
+    Node left = relational();
+    while (left != null && (peek("==") || peek("!="))) {
+      String op = next().text;
+      Node right = relational();
+      left = right == null ? null : new Binary(arithmetic, op, left, right);
+    }
+    return left;
+  }
+
+  private Node relational() {
+    Node left = additive();
+    while (left != null && (peek("<") || peek("<=") || peek(">") || peek(">="))) {
+      String op = next().text;
+      Node right = additive();
+      left = right == null ? null : new Binary(arithmetic, op, left, right);
+    }
+    return left;
+  }
+
+  private Node additive() {
+    Node left = multiplicative();
+    while (left != null && (peek("+") || peek("-"))) {
+      String op = next().text;
+      Node right = multiplicative();
+      left = right == null ? null : new Binary(arithmetic, op, left, right);
+    }
+    return left;
+  }
+
+  private Node multiplicative() {
+    Node left = unary();
+    while (left != null && (peek("*") || peek("/") || peek("%"))) {
+      String op = next().text;
+      Node right = unary();
+      left = right == null ? null : new Binary(arithmetic, op, left, right);
+    }
+    return left;
+  }
+
+  private Node unary() {
+    if (accept("-")) {
+      Node operand = unary();
+      return operand == null ? null : new Negate(arithmetic, operand);
+    }
+    if (accept("!")) {
+      Node operand = unary();
+      return operand == null ? null : new Not(arithmetic, operand);
+    }
+    return postfix();
+  }
+
+  private Node postfix() {
+    Node node = primary();
+    while (node != null && accept(".")) {
+      // Only method calls are compiled, property access isn't.
+      Token name = next();
+      if (name == null || name.type != Token.IDENTIFIER || !accept("(")) {
+        return null;
+      }
+      List<Node> args = arguments();
+      node = args == null ? null : new Call(uberspect, invocations, node, name.text, args);
+    }
+    return node;
+  }
+
+  private Node primary() {
+    Token token = next();
+    if (token == null) {
+      return null;
+    }
+    switch (token.type) {
+      case Token.LITERAL:
+        return new Literal(token.value);
+      case Token.IDENTIFIER:
+        // A prefix followed by a function call is a call to a function of a namespace, as for JEXL.
+        if (peek(":") && pos + 2 < tokens.size() && tokens.get(pos + 1).type == Token.IDENTIFIER
+          && tokens.get(pos + 2).type == Token.OPERATOR && "(".equals(tokens.get(pos + 2).text)) {
+          Token function = tokens.get(pos + 1);
+          pos += 3;
+          return function(token.text, function.text);
+        }
+        if (accept("(")) {
+          return function(null, token.text);
+        }
+        return new Variable(token.text);
+      default:
+        if ("(".equals(token.text)) {
+          Node node = ternary();
+          return node != null && accept(")") ? node : null;
+        }
+        return null;
+    }
+  }
+
+  /**
+   * Compiles a call to a function of a namespace, once the opening parenthesis is consumed.
+   */
+  private Node function(@Nullable String prefix, String name) {
+    Object namespace = namespaces.get(prefix);
+    if (namespace == null) {
+      return null;
+    }
+    List<Node> args = arguments();
+    return args == null ? null : new Call(uberspect, invocations, new Literal(namespace), name, args);
+  }
+
+  /**
+   * Compiles the arguments of a call, once the opening parenthesis is consumed.
+   */
+  private List<Node> arguments() {
+    List<Node> args = new ArrayList<>();
+    if (accept(")")) {
+      return args;
+    }
+    do {
+      Node arg = ternary();
+      if (arg == null) {
+        return null;
+      }
+      args.add(arg);
+    } while (accept(","));
+    return accept(")") ? args : null;
+  }
+
+  private boolean peek(String operator) {
+    if (pos >= tokens.size()) {
+      return false;
+    }
+    Token token = tokens.get(pos);
+    return token.type == Token.OPERATOR && token.text.equals(operator);
+  }
+
+  private boolean accept(String operator) {
+    if (peek(operator)) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  private Token next() {
+    return pos < tokens.size() ? tokens.get(pos++) : null;
+  }
+
+  /**
+   * Splits an expression into tokens.
+   *
+   * @return tokens of the expression, null if the expression has tokens that are not compiled.
+   */
+  @Nullable
+  private static List<Token> tokenize(String expression) {
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    int length = expression.length();
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isDigit(c)) {
+        int start = i;
+        while (i < length && Character.isDigit(expression.charAt(i))) {
+          i++;
+        }
+        boolean real = i + 1 < length && expression.charAt(i) == '.' && Character.isDigit(expression.charAt(i + 1));
+        if (real) {
+          i++;
+          while (i < length && Character.isDigit(expression.charAt(i))) {
+            i++;
+          }
+        }
+        // Suffixed, exponent, octal and hexadecimal literals are left to JEXL.
+        if (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          return null;
+        }
+        String text = expression.substring(start, i);
+        if (!real && text.length() > 1 && text.charAt(0) == '0') {
+          return null;
+        }
+        Object value = number(text, real);
+        if (value == null) {
+          return null;
+        }
+        tokens.add(new Token(Token.LITERAL, text, value));
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+        String text = expression.substring(start, i);
+        if ("true".equals(text) || "false".equals(text)) {
+          tokens.add(new Token(Token.LITERAL, text, Boolean.valueOf(text)));
+        } else if ("null".equals(text)) {
+          tokens.add(new Token(Token.LITERAL, text, null));
+        } else if (RESERVED.contains(text)) {
+          return null;
+        } else {
+          tokens.add(new Token(Token.IDENTIFIER, text, null));
+        }
+      } else if (c == '\'' || c == '"') {
+        int end = expression.indexOf(c, i + 1);
+        if (end == -1) {
+          return null;
+        }
+        String text = expression.substring(i + 1, end);
+        // Escape sequences are left to JEXL.
+        if (text.indexOf('\\') != -1) {
+          return null;
+        }
+        tokens.add(new Token(Token.LITERAL, text, text));
+        i = end + 1;
+      } else {
+        String operator = operator(expression, i);
+        if (operator == null) {
+          return null;
+        }
+        tokens.add(new Token(Token.OPERATOR, operator, null));
+        i += operator.length();
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Reads the operator at a position of an expression.
+   *
+   * @return operator read, null if it's not an operator that is compiled.
+   */
+  @Nullable
+  private static String operator(String expression, int i) {
+    String two = i + 1 < expression.length() ? expression.substring(i, i + 2) : "";
+    switch (two) {
+      case "==":
+      case "!=":
+      case "<=":
+      case ">=":
+      case "&&":
+      case "||":
+        return two;
+      // Regular expression, starts with, ends with, elvis, safe navigation and comments.
+      case "=~":
+      case "!~":
+      case "=^":
+      case "!^":
+      case "=$":
+      case "!$":
+      case "?:":
+      case "?.":
+      case "//":
+      case "/*":
+        return null;
+      default:
+        break;
+    }
+    char c = expression.charAt(i);
+    return "+-*/%<>!?:(),.".indexOf(c) == -1 ? null : String.valueOf(c);
+  }
+
+  /**
+   * Converts a number literal into the value JEXL gives it, which is an Integer, a Long or a
+   * Double.
+   *
+   * @return value of the literal, null if it's outside of those types.
+   */
+  @Nullable
+  private static Object number(String text, boolean real) {
+    if (real) {
+      return Double.valueOf(text);
+    }
+    if (text.length() > 18) {
+      return null;
+    }
+    long value = Long.parseLong(text);
+    if (value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
+
+  /**
+   * A token of an expression.
+   */
+  private static final class Token {
+    private static final int LITERAL = 0;
+    private static final int IDENTIFIER = 1;
+    private static final int OPERATOR = 2;
+
+    private final int type;
+    private final String text;
+    private final Object value;
+
+    private Token(int type, String text, Object value) {
+      this.type = type;
+      this.text = text;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Constant value.
+   */
+  static final class Literal extends Node {
+    final Object value;
+
+    private Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object eval(JexlContext context) {
+      return value;
+    }
+  }
+
+  /**
+   * Value of a variable of the context.
+   */
+  static final class Variable extends Node {
+    final String name;
+
+    private Variable(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Object eval(JexlContext context) {
+      Object value = context.get(name);
+      // Variables not defined are reported by JEXL, which also looks them up as dotted names.
+      if (value == null && !context.has(name)) {
+        throw new IllegalStateException("Undefined variable " + name);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Arithmetic and comparison operators.
+   */
+  static final class Binary extends Node {
+    final JexlArithmetic arithmetic;
+    final char op;
+    final boolean inclusive;
+    final Node left;
+    final Node right;
+
+    private Binary(JexlArithmetic arithmetic, String op, Node left, Node right) {
+      this.arithmetic = arithmetic;
+      this.op = op.charAt(0);
+      this.inclusive = op.length() > 1;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      Object l = left.eval(context);
+      Object r = right.eval(context);
+      switch (op) {
+        case '+':
+          return arithmetic.add(l, r);
+        case '-':
+          return arithmetic.subtract(l, r);
+        case '*':
+          return arithmetic.multiply(l, r);
+        case '/':
+          return arithmetic.divide(l, r);
+        case '%':
+          return arithmetic.mod(l, r);
+        case '=':
+          return arithmetic.equals(l, r);
+        case '!':
+          return !arithmetic.equals(l, r);
+        case '<':
+          return inclusive ? arithmetic.lessThanOrEqual(l, r) : arithmetic.lessThan(l, r);
+        case '>':
+          return inclusive ? arithmetic.greaterThanOrEqual(l, r) : arithmetic.greaterThan(l, r);
+        default:
+          throw new IllegalStateException("Unknown operator " + op);
+      }
+    }
+  }
+
+  /**
+   * Short-circuiting logical and and or operators.
+   */
+  static final class Logical extends Node {
+    final JexlArithmetic arithmetic;
+    final boolean and;
+    final Node left;
+    final Node right;
+
+    private Logical(JexlArithmetic arithmetic, boolean and, Node left, Node right) {
+      this.arithmetic = arithmetic;
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      if (arithmetic.toBoolean(left.eval(context)) != and) {
+        return !and;
+      }
+      return arithmetic.toBoolean(right.eval(context));
+    }
+  }
+
+  /**
+   * Ternary conditional operator.
+   */
+  static final class Ternary extends Node {
+    final JexlArithmetic arithmetic;
+    final Node condition;
+    final Node first;
+    final Node second;
+
+    private Ternary(JexlArithmetic arithmetic, Node condition, Node first, Node second) {
+      this.arithmetic = arithmetic;
+      this.condition = condition;
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      // As JEXL does, a null condition selects the second operand rather than being coerced.
+      Object value = condition.eval(context);
+      return value != null && arithmetic.toBoolean(value) ? first.eval(context) : second.eval(context);
+    }
+  }
+
+  /**
+   * Unary minus operator.
+   */
+  static final class Negate extends Node {
+    final JexlArithmetic arithmetic;
+    final Node operand;
+
+    private Negate(JexlArithmetic arithmetic, Node operand) {
+      this.arithmetic = arithmetic;
+      this.operand = operand;
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      return arithmetic.negate(operand.eval(context));
+    }
+  }
+
+  /**
+   * Logical not operator.
+   */
+  static final class Not extends Node {
+    final JexlArithmetic arithmetic;
+    final Node operand;
+
+    private Not(JexlArithmetic arithmetic, Node operand) {
+      this.arithmetic = arithmetic;
+      this.operand = operand;
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      return !arithmetic.toBoolean(operand.eval(context));
+    }
+  }
+
+  /**
+   * Records whether a method was called by a compiled expression since the record was last reset.
+   * An expression that called a method may have had side effects, so it isn't evaluated again by
+   * JEXL when it then fails.
+   */
+  static final class Invocations {
+    private boolean called;
+
+    void reset() {
+      called = false;
+    }
+
+    boolean called() {
+      return called;
+    }
+  }
+
+  /**
+   * Call to a method of a value, or to a function of a namespace, the target being the class of
+   * the namespace. The method found is kept for the next calls having arguments of the same types.
+   */
+  private static final class Call extends Node {
+    private final JexlUberspect uberspect;
+    private final Invocations invocations;
+    private final Node target;
+    private final String name;
+    private final Node[] args;
+    private JexlMethod method;
+
+    private Call(JexlUberspect uberspect, Invocations invocations, Node target, String name, List<Node> args) {
+      this.uberspect = uberspect;
+      this.invocations = invocations;
+      this.target = target;
+      this.name = name;
+      this.args = args.toArray(new Node[args.size()]);
+    }
+
+    @Override
+    Object eval(JexlContext context) throws Exception {
+      Object object = target.eval(context);
+      if (object == null) {
+        throw new IllegalStateException("Method " + name + " called on null");
+      }
+      Object[] values = new Object[args.length];
+      for (int i = 0; i < args.length; ++i) {
+        values[i] = args[i].eval(context);
+      }
+      JexlMethod cached = method;
+      if (cached != null) {
+        invocations.called = true;
+        Object result = cached.tryInvoke(name, object, values);
+        if (!cached.tryFailed(result)) {
+          return result;
+        }
+      }
+      JexlMethod found = uberspect.getMethod(object, name, values);
+      if (found == null) {
+        throw new IllegalStateException("Unknown method " + name);
+      }
+      method = found.isCacheable() ? found : null;
+      invocations.called = true;
+      return found.invoke(object, values);
+    }
+  }
+}
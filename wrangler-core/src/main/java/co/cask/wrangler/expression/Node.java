@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import org.apache.commons.jexl3.JexlContext;
+
+/**
+ * A node of a compiled expression, evaluating the part of the expression it was compiled from.
+ */
+abstract class Node {
+  /**
+   * Evaluates the node.
+   *
+   * @param context holding the variables of the expression.
+   * @return value of the node.
+   * @throws Exception if the node can't be evaluated, in which case the expression is evaluated
+   *                   by JEXL instead, which reports the failure.
+   */
+  abstract Object eval(JexlContext context) throws Exception;
+}
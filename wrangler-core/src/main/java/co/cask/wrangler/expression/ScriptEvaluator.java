@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import co.cask.directives.JexlHelper;
+import co.cask.wrangler.api.ExecutorContext;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlInfo;
+import org.apache.commons.jexl3.JexlScript;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates the script of an expression, either by JEXL or, when enabled, through a compiled
+ * form of the expression, see {@link ExpressionCompiler}.
+ *
+ * <p>Compilation is enabled by setting the property {@value #COMPILE_PROPERTY} of the pipeline to
+ * true, see {@link ExecutorContext#getProperties()}, which the Wrangler plugin sets from its
+ * configuration. Expressions outside of the subset of JEXL that is compiled are evaluated by JEXL.
+ * When the compiled expression fails on a context, such as on a variable that is not defined or on
+ * a null operand, the expression is evaluated again by JEXL, which reports the failure as it always
+ * has, unless the expression called a method before failing. Methods may have side effects, so
+ * the failure is then reported as is, without evaluating the expression again.</p>
+ *
+ * <p>An evaluator remembers the methods called by the expression, so it's meant to be used by
+ * a single thread, as the directives are.</p>
+ */
+public final class ScriptEvaluator {
+  public static final String COMPILE_PROPERTY = "compileExpressions";
+
+  private final String expression;
+  private final JexlScript script;
+
+  // Compiled expression, null if the script is evaluated by JEXL.
+  private final Node node;
+
+  // Record of the methods called by the compiled expression.
+  private final ExpressionCompiler.Invocations invocations;
+
+  private ScriptEvaluator(String expression, JexlScript script, Node node,
+                          ExpressionCompiler.Invocations invocations) {
+    this.expression = expression;
+    this.script = script;
+    this.node = node;
+    this.invocations = invocations;
+  }
+
+  /**
+   * Creates an evaluator for the script of an expression, compiling the expression if enabled by
+   * the properties of the pipeline.
+   *
+   * @param expression from which the script was created.
+   * @param script created by {@link JexlHelper#compile(String)}.
+   * @param context of the pipeline executing the expression, null if there is none.
+   * @return evaluator of the script.
+   */
+  public static ScriptEvaluator of(String expression, JexlScript script, @Nullable ExecutorContext context) {
+    Map<String, String> properties = context == null ? null : context.getProperties();
+    boolean compile = properties != null && Boolean.parseBoolean(properties.get(COMPILE_PROPERTY));
+    return compile ? compiled(expression, script) : new ScriptEvaluator(expression, script, null, null);
+  }
+
+  /**
+   * Creates an evaluator for the script of an expression, compiling the expression if possible
+   * regardless of whether compilation is enabled.
+   */
+  static ScriptEvaluator compiled(String expression, JexlScript script) {
+    ExpressionCompiler.Invocations invocations = new ExpressionCompiler.Invocations();
+    Node node = ExpressionCompiler.compile(expression, JexlHelper.getEngine(), JexlHelper.getRegisteredFunctions(),
+                                           invocations);
+    return new ScriptEvaluator(expression, script, node, invocations);
+  }
+
+  /**
+   * @return true if the expression is evaluated through its compiled form.
+   */
+  public boolean isCompiled() {
+    return node != null;
+  }
+
+  /**
+   * @return compiled expression, null if the script is evaluated by JEXL.
+   */
+  Node node() {
+    return node;
+  }
+
+  /**
+   * Evaluates the script.
+   *
+   * @param context holding the variables of the script.
+   * @return result of the script.
+   * @throws org.apache.commons.jexl3.JexlException if the script fails.
+   */
+  public Object evaluate(JexlContext context) {
+    if (node != null) {
+      invocations.reset();
+      try {
+        return node.eval(context);
+      } catch (Exception e) {
+        if (invocations.called()) {
+          Throwable cause = e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+          throw new JexlException((JexlInfo) null, expression, cause);
+        }
+        // Evaluated again by JEXL below.
+      }
+    }
+    return script.execute(context);
+  }
+}
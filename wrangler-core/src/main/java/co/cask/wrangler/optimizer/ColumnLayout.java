@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of the columns of a {@link co.cask.wrangler.api.Row}, tracking for each column its
+ * name and the position of the column in the row the layout was created from. Directives that only
+ * rename, reorder or remove columns are applied on the layout in order to compute, once for all
+ * the rows having the same columns, where each column of their result comes from.
+ */
+public final class ColumnLayout {
+  private final List<String> names;
+  private final List<Integer> sources;
+
+  public ColumnLayout(List<String> names) {
+    this.names = new ArrayList<>(names);
+    this.sources = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); ++i) {
+      sources.add(i);
+    }
+  }
+
+  /**
+   * @return number of columns in the layout.
+   */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Finds a column by name, the same way {@link co.cask.wrangler.api.Row#find(String)} does.
+   *
+   * @param name of the column to be searched.
+   * @return -1 if not present, else the index of the first column having the name, ignoring case.
+   */
+  public int find(String name) {
+    for (int i = 0; i < names.size(); ++i) {
+      if (name.equalsIgnoreCase(names.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param idx of the column.
+   * @return name of the column at idx.
+   */
+  public String getName(int idx) {
+    return names.get(idx);
+  }
+
+  /**
+   * Renames the column at a given index.
+   *
+   * @param idx of the column to be renamed.
+   * @param name to be set for the column.
+   */
+  public void setName(int idx, String name) {
+    names.set(idx, name);
+  }
+
+  /**
+   * Removes the column at a given index.
+   *
+   * @param idx of the column to be removed.
+   */
+  public void remove(int idx) {
+    names.remove(idx);
+    sources.remove(idx);
+  }
+
+  /**
+   * @return names of the columns.
+   */
+  public List<String> getNames() {
+    return names;
+  }
+
+  /**
+   * @return for each column, its position in the row the layout was created from.
+   */
+  public int[] getSources() {
+    int[] positions = new int[sources.size()];
+    for (int i = 0; i < positions.length; ++i) {
+      positions[i] = sources.get(i);
+    }
+    return positions;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+
+/**
+ * A {@link Directive} that only renames, reorders or removes the columns of a row, leaving
+ * the values of the columns untouched. Consecutive projections are fused by the
+ * {@link RecipeOptimizer} into a single {@link FusedProjection}.
+ */
+public interface ColumnProjection extends Directive {
+  /**
+   * Applies the directive on the layout of the columns of a row, the same way the directive
+   * would apply on a row having those columns.
+   *
+   * @param layout of the columns to be modified.
+   * @return false if the directive fails on rows having the layout, true otherwise.
+   */
+  boolean project(ColumnLayout layout);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+
+import java.util.Set;
+
+/**
+ * A {@link Directive} generating columns it can skip when they are not used afterwards. The
+ * {@link RecipeOptimizer} passes it the columns used by the rest of the recipe, when they are
+ * known.
+ */
+public interface ColumnPruner extends Directive {
+  /**
+   * Restricts the columns generated by the directive to the ones used afterwards.
+   *
+   * @param used lower cased names of the columns used after the directive, the other columns
+   *             generated by the directive may be skipped.
+   */
+  void pruneColumns(Set<String> used);
+}
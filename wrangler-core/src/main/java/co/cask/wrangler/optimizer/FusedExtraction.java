@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.parser.UsageDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Directive} executing a run of {@link PathExtractor} directives reading the same
+ * column, parsing the document of each row once for all of them.
+ *
+ * <p>The extractors are still applied one after the other on all the rows, as they would be
+ * without the fusion, so that rows are removed and failures are reported the same way. Only the
+ * first extractor parses the documents, the others extract from the documents it parsed, which
+ * is valid as none of the extractors but the last writes to the column read. Rows the first
+ * extractor doesn't parse are passed through the extractors one by one, so that they are
+ * handled the same way as without the fusion.</p>
+ */
+public final class FusedExtraction implements Directive {
+  public static final String NAME = "fused-extraction";
+
+  // Directives fused, in the order of the recipe.
+  private final List<PathExtractor> extractors;
+
+  public FusedExtraction(List<PathExtractor> extractors) {
+    this.extractors = extractors;
+  }
+
+  @Override
+  public UsageDefinition define() {
+    return UsageDefinition.builder(NAME).build();
+  }
+
+  @Override
+  public void initialize(Arguments args) {
+    // no-op, the directives fused are initialized.
+  }
+
+  @Override
+  public void destroy() {
+    for (PathExtractor extractor : extractors) {
+      extractor.destroy();
+    }
+  }
+
+  /**
+   * @return directives fused, in the order of the recipe.
+   */
+  public List<PathExtractor> getExtractors() {
+    return extractors;
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException {
+    PathExtractor first = extractors.get(0);
+    String column = first.getSourceColumn();
+
+    // Documents of the rows extracted from, null for the rows passed through the extractors.
+    List<Row> results = new ArrayList<>(rows.size());
+    List<Object> documents = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      Object document = first.parse(row.getValue(column));
+      if (document == null) {
+        List<Row> newRows = Collections.singletonList(row);
+        for (PathExtractor extractor : extractors) {
+          newRows = extractor.execute(newRows, context);
+        }
+        for (Row result : newRows) {
+          results.add(result);
+          documents.add(null);
+        }
+        continue;
+      }
+      first.extract(document, row);
+      results.add(row);
+      documents.add(document);
+    }
+
+    for (int i = 1; i < extractors.size(); ++i) {
+      PathExtractor extractor = extractors.get(i);
+      for (int j = 0; j < results.size(); ++j) {
+        Object document = documents.get(j);
+        if (document != null) {
+          extractor.extract(document, results.get(j));
+        }
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(NAME).append(" [");
+    for (int i = 0; i < extractors.size(); ++i) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(extractors.get(i).define().getDirectiveName());
+    }
+    return sb.append("]").toString();
+  }
+}
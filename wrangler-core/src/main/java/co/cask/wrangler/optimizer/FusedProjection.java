@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.parser.UsageDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Directive} executing a run of {@link ColumnProjection} directives at once.
+ *
+ * <p>The projections are applied on the layout of the columns of a row, giving for each column
+ * of the result the column of the row it comes from. The result is then built in a single pass
+ * over the row, instead of each projection modifying the row in turn. The layout is computed
+ * again only when a row has different columns than the row before it, and the rows generated
+ * for a layout share their columns.</p>
+ *
+ * <p>Rows on which one of the projections fails are passed through the projections one by one,
+ * so that the failure is reported the same way as without the fusion.</p>
+ */
+public final class FusedProjection implements Directive {
+  public static final String NAME = "fused-projection";
+
+  // Directives fused, in the order of the recipe.
+  private final List<ColumnProjection> projections;
+
+  // Names of the columns of the last row planned.
+  private transient String[] names;
+
+  // Plan for the rows having the columns above.
+  private transient Plan plan;
+
+  public FusedProjection(List<ColumnProjection> projections) {
+    this.projections = projections;
+  }
+
+  @Override
+  public UsageDefinition define() {
+    return UsageDefinition.builder(NAME).build();
+  }
+
+  @Override
+  public void initialize(Arguments args) {
+    // no-op, the directives fused are initialized.
+  }
+
+  @Override
+  public void destroy() {
+    for (ColumnProjection projection : projections) {
+      projection.destroy();
+    }
+  }
+
+  /**
+   * @return directives fused, in the order of the recipe.
+   */
+  public List<ColumnProjection> getProjections() {
+    return projections;
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException {
+    List<Row> results = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      Plan p = plan(row);
+      if (p != null) {
+        results.add(p.apply(row));
+        continue;
+      }
+
+      List<Row> newRows = new ArrayList<>(1);
+      newRows.add(row);
+      for (ColumnProjection projection : projections) {
+        newRows = projection.execute(newRows, context);
+      }
+      results.addAll(newRows);
+    }
+    return results;
+  }
+
+  /**
+   * Returns the plan for the columns of a row, reusing the plan of the previous row when
+   * the row has the same columns.
+   *
+   * @param row to be planned.
+   * @return plan for the row, null if one of the projections fails on the row.
+   */
+  private Plan plan(Row row) {
+    if (names != null && names.length == row.length()) {
+      boolean same = true;
+      for (int i = 0; i < names.length && same; ++i) {
+        String name = row.getColumn(i);
+        same = names[i] == null ? name == null : names[i].equals(name);
+      }
+      if (same) {
+        return plan;
+      }
+    }
+
+    List<String> columns = new ArrayList<>(row.length());
+    for (int i = 0; i < row.length(); ++i) {
+      columns.add(row.getColumn(i));
+    }
+    names = columns.toArray(new String[columns.size()]);
+
+    ColumnLayout layout = new ColumnLayout(columns);
+    plan = null;
+    for (ColumnProjection projection : projections) {
+      if (!projection.project(layout)) {
+        return null;
+      }
+    }
+    plan = new Plan(layout);
+    return plan;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(NAME).append(" [");
+    for (int i = 0; i < projections.size(); ++i) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(projections.get(i).define().getDirectiveName());
+    }
+    return sb.append("]").toString();
+  }
+
+  /**
+   * Position in the input row of each column of the result, along with a template of the
+   * result whose columns are shared by all the rows built from it.
+   */
+  private static final class Plan {
+    private final int[] sources;
+    private final Row template;
+
+    private Plan(ColumnLayout layout) {
+      this.sources = layout.getSources();
+      this.template = new Row();
+      for (String name : layout.getNames()) {
+        template.add(name, null);
+      }
+    }
+
+    private Row apply(Row row) {
+      Row result = new Row(template);
+      for (int i = 0; i < sources.length; ++i) {
+        // Values not read from the record of the row yet are left for the rows using them to read.
+        result.copyValue(i, row, sources[i]);
+      }
+      return result;
+    }
+  }
+}
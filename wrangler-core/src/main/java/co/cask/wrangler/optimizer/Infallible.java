@@ -0,0 +1,31 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.lineage.Mutator;
+
+/**
+ * A {@link Directive} that never fails, whatever the rows passed to it: it neither throws nor
+ * sends rows to error, and only adds, modifies or drops the columns listed in its lineage. The
+ * {@link RecipeOptimizer} only removes such directives when the columns they compute are not
+ * used afterwards, so removing them doesn't change which rows fail. A directive adding a column
+ * that may already be present is not infallible, as the column it adds is a duplicate which
+ * changes the column a later directive finds by that name.
+ */
+public interface Infallible extends Directive, Mutator {
+}
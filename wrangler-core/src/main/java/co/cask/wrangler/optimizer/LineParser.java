@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+
+/**
+ * A {@link Directive} parsing the value of a column of each row on its own, so that rows can be
+ * parsed by copies of the directive on other threads, see {@link ParallelLineParser}.
+ */
+public interface LineParser extends Directive {
+  /**
+   * @return name of the column parsed.
+   */
+  String getParsedColumn();
+
+  /**
+   * Checks whether the next rows still have to be parsed in order by this instance, such as
+   * until the header of the values has been read.
+   *
+   * @return true if the next rows can't be parsed by copies of the directive.
+   */
+  boolean requiresOrder();
+
+  /**
+   * Creates a copy of the directive in its current state, parsing rows independently of this
+   * instance. The copy is not initialized again.
+   *
+   * @return copy of the directive.
+   */
+  LineParser copy();
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Directive} generating a row per line of the value of a column. When followed by a
+ * {@link LineParser} of the same column, both are fused by the {@link RecipeOptimizer} into a
+ * {@link ParallelLineParser}.
+ */
+public interface LineSplitter extends Directive {
+  /**
+   * @return name of the column split, null if the directive doesn't split the column at each
+   *         <code>\n</code> the way {@link String#split(String)} does.
+   */
+  @Nullable
+  String getSplitColumn();
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.Sequential;
+import co.cask.wrangler.api.parser.UsageDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Directive} executing a {@link LineSplitter} followed by a {@link LineParser} of the
+ * same column at once, parsing the lines of large values in parallel.
+ *
+ * <p>A value of at least {@link #MIN_PARALLEL_LENGTH} chars is cut into chunks of about
+ * {@link #CHUNK_LENGTH} chars, each ending at a line break. The rows of the lines of each chunk
+ * are parsed by a copy of the parser on a {@link ForkJoinPool} shared by all the instances, and
+ * the rows parsed are returned in the order of the lines. As the splitter breaks the value at
+ * every line break, regardless of the quotes of the value, a line break is always a safe place
+ * to cut the value at. Lines are parsed in order by the parser itself for as long as it
+ * requires, such as up to its header.</p>
+ *
+ * <p>Smaller values, and values that are not strings, are passed through the splitter and the
+ * parser in turn. The directive requires sequential execution when either of the directives it
+ * fuses does.</p>
+ */
+public final class ParallelLineParser implements Directive, Sequential {
+  public static final String NAME = "parallel-line-parser";
+
+  // Minimum length of a value for its lines to be parsed in parallel.
+  static final int MIN_PARALLEL_LENGTH = 1 << 20;
+
+  // Length of the chunks of a value parsed by each task.
+  static final int CHUNK_LENGTH = 1 << 18;
+
+  private final LineSplitter splitter;
+  private final LineParser parser;
+  private final String column;
+
+  // Position of the column in the last row processed.
+  private int slot = -1;
+
+  public ParallelLineParser(LineSplitter splitter, LineParser parser) {
+    this.splitter = splitter;
+    this.parser = parser;
+    this.column = parser.getParsedColumn();
+  }
+
+  @Override
+  public UsageDefinition define() {
+    return UsageDefinition.builder(NAME).build();
+  }
+
+  @Override
+  public void initialize(Arguments args) {
+    // no-op, the directives fused are initialized.
+  }
+
+  @Override
+  public boolean requiresSequentialExecution() {
+    return requiresSequentialExecution(splitter) || requiresSequentialExecution(parser);
+  }
+
+  private static boolean requiresSequentialExecution(Directive directive) {
+    return directive instanceof Sequential && ((Sequential) directive).requiresSequentialExecution();
+  }
+
+  @Override
+  public void destroy() {
+    splitter.destroy();
+    parser.destroy();
+  }
+
+  /**
+   * @return directive splitting the column into lines.
+   */
+  public LineSplitter getSplitter() {
+    return splitter;
+  }
+
+  /**
+   * @return directive parsing the lines.
+   */
+  public LineParser getParser() {
+    return parser;
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException {
+    List<Row> results = new ArrayList<>();
+    for (Row row : rows) {
+      int idx = row.find(column, slot);
+      slot = idx;
+      Object value = idx == -1 ? null : row.getValue(idx);
+      if (value instanceof String && ((String) value).length() >= MIN_PARALLEL_LENGTH) {
+        parse(row, idx, (String) value, context, results);
+      } else {
+        results.addAll(parser.execute(splitter.execute(Collections.singletonList(row), context), context));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Parses the lines of a value in parallel.
+   *
+   * @param row holding the value.
+   * @param idx index of the column holding the value.
+   * @param text value to be split into lines.
+   * @param context of the pipeline.
+   * @param results to which the rows parsed are added, in the order of the lines.
+   */
+  private void parse(Row row, int idx, String text, ExecutorContext context, List<Row> results)
+    throws DirectiveExecutionException, ErrorRowException {
+    // Trailing empty lines are dropped, as String.split does.
+    int end = text.length();
+    while (end > 0 && text.charAt(end - 1) == '\n') {
+      --end;
+    }
+
+    int start = 0;
+    while (start < end && parser.requiresOrder()) {
+      int stop = lineEnd(text, start, end);
+      results.addAll(parser.execute(new Chunk(parser, row, idx, text, start, stop, context).lines(), context));
+      start = stop + 1;
+    }
+
+    List<Chunk> tasks = new ArrayList<>();
+    while (start < end) {
+      int stop = lineEnd(text, Math.min(start + CHUNK_LENGTH, end), end);
+      tasks.add(new Chunk(parser.copy(), row, idx, text, start, stop, context));
+      start = stop + 1;
+    }
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    try {
+      for (Future<List<Row>> future : Pool.INSTANCE.invokeAll(tasks)) {
+        results.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DirectiveExecutionException(toString() + " : Interrupted while parsing the lines.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DirectiveExecutionException) {
+        throw (DirectiveExecutionException) cause;
+      }
+      if (cause instanceof ErrorRowException) {
+        throw (ErrorRowException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new DirectiveExecutionException(toString() + " : " + cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * @return index of the first line break at or after <code>from</code>, <code>end</code> if none.
+   */
+  private static int lineEnd(String text, int from, int end) {
+    int idx = text.indexOf('\n', from);
+    return idx == -1 || idx > end ? end : idx;
+  }
+
+  @Override
+  public String toString() {
+    return NAME + " [" + splitter.define().getDirectiveName() + ", " + parser.define().getDirectiveName() + "]";
+  }
+
+  /**
+   * Pool parsing the chunks, created for the first value parsed in parallel. It's shared by all
+   * the instances, so that the copies of a recipe executed by the partitions of the executor don't
+   * each add a thread per processor. Its threads are daemon threads, ended once idle.
+   */
+  private static final class Pool {
+    private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Lines of a range of a value, along with the parser parsing them.
+   */
+  private static final class Chunk implements Callable<List<Row>> {
+    private final LineParser parser;
+    private final Row row;
+    private final int idx;
+    private final String text;
+    private final int start;
+    private final int end;
+    private final ExecutorContext context;
+
+    private Chunk(LineParser parser, Row row, int idx, String text, int start, int end, ExecutorContext context) {
+      this.parser = parser;
+      this.row = row;
+      this.idx = idx;
+      this.text = text;
+      this.start = start;
+      this.end = end;
+      this.context = context;
+    }
+
+    /**
+     * @return a row per line of the range, as generated by the splitter.
+     */
+    private List<Row> lines() {
+      List<Row> lines = new ArrayList<>();
+      int from = start;
+      while (true) {
+        int stop = lineEnd(text, from, end);
+        Row line = new Row(row);
+        line.setValue(idx, text.substring(from, stop));
+        lines.add(line);
+        if (stop == end) {
+          return lines;
+        }
+        from = stop + 1;
+      }
+    }
+
+    @Override
+    public List<Row> call() throws Exception {
+      return parser.execute(lines(), context);
+    }
+  }
+}
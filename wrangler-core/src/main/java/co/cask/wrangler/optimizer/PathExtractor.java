@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.Row;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Directive} extracting a value out of the document held by a column of a row into
+ * another column. Consecutive extractors of the same class reading the same column are fused by
+ * the {@link RecipeOptimizer} into a {@link FusedExtraction}, which parses the document of each
+ * row once for all of them.
+ */
+public interface PathExtractor extends Directive {
+  /**
+   * @return name of the column holding the document.
+   */
+  String getSourceColumn();
+
+  /**
+   * @return name of the column the value extracted is written to.
+   */
+  String getDestinationColumn();
+
+  /**
+   * Parses the document held by the source column of a row, the same way the directive does
+   * on its own.
+   *
+   * @param value of the source column.
+   * @return parsed document, null if the directive doesn't extract from the value, in which case
+   *         the row is executed by the directive as it is.
+   */
+  @Nullable
+  Object parse(@Nullable Object value);
+
+  /**
+   * Extracts the value out of a document and writes it to the destination column of a row.
+   *
+   * @param document parsed by {@link #parse(Object)} of a directive of the same class.
+   * @param row from which the document was parsed.
+   * @throws DirectiveExecutionException if the value can't be extracted.
+   */
+  void extract(Object document, Row row) throws DirectiveExecutionException;
+}
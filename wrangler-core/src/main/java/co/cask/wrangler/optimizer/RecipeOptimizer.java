@@ -0,0 +1,445 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.lineage.Mutation;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Rewrites the directives of a recipe, as generated by the
+ * {@link co.cask.wrangler.api.RecipeParser}, into an equivalent list of directives that is
+ * cheaper to execute.
+ *
+ * <p>Directives that only compute columns which are never used, as the columns are dropped
+ * later in the recipe or are not part of the output of the recipe, are removed. Which columns
+ * a directive reads and writes is known from its {@link Mutator#lineage()}, a directive that
+ * doesn't declare its lineage is assumed to read all the columns. Only {@link Infallible}
+ * directives are removed, so the rows failing are the same. Directives that can fail use all the
+ * columns they name, as whether they fail can depend on the columns being present, such as a
+ * rename failing when a column already has the new name. The removal can be turned off.</p>
+ *
+ * <p>Each {@link RowFilter} is moved ahead of the {@link Infallible} directives preceding it
+ * that don't write any of the columns read by the filter, so rows are removed before work is
+ * spent on them. As those directives neither fail nor have side effects, the rows filtered and
+ * the rows failing are the same. Filters are not moved past each other, nor past any other
+ * directive, such as the parsers, which don't declare a lineage.</p>
+ *
+ * <p>Each {@link ColumnPruner} is passed the columns used after it, when those are known, so it
+ * can skip generating the other columns.</p>
+ *
+ * <p>Runs of consecutive {@link ColumnProjection} directives are fused into a single
+ * {@link FusedProjection}, which builds the result of the whole run in one pass over a row.</p>
+ *
+ * <p>A {@link LineSplitter} directly followed by a {@link LineParser} of the same column are
+ * fused into a {@link ParallelLineParser}, which parses the lines of large values in parallel.</p>
+ *
+ * <p>Runs of consecutive {@link PathExtractor} directives of the same class reading the same
+ * column are fused into a {@link FusedExtraction}, which parses the document of each row once
+ * for the whole run. A run ends with the first extractor writing to the column read.</p>
+ */
+public final class RecipeOptimizer implements Serializable {
+
+  // Lower cased names of the columns making up the output of the recipe, null if all are.
+  private final Set<String> outputColumns;
+
+  // Whether the directives computing columns that are not used are removed.
+  private final boolean eliminateDirectives;
+
+  public RecipeOptimizer() {
+    this(null);
+  }
+
+  /**
+   * Creates an optimizer for a recipe whose rows are only used for the given columns.
+   *
+   * @param outputColumns names of the columns used from the rows of the recipe, null if all are used.
+   */
+  public RecipeOptimizer(@Nullable Collection<String> outputColumns) {
+    this(outputColumns, true);
+  }
+
+  /**
+   * Creates an optimizer for a recipe whose rows are only used for the given columns.
+   *
+   * @param outputColumns names of the columns used from the rows of the recipe, null if all are used.
+   * @param eliminateDirectives false if the directives computing columns that are not used are to be
+   *                            kept, along with all the columns computed by the directives.
+   */
+  public RecipeOptimizer(@Nullable Collection<String> outputColumns, boolean eliminateDirectives) {
+    this.eliminateDirectives = eliminateDirectives;
+    if (outputColumns == null) {
+      this.outputColumns = null;
+    } else {
+      this.outputColumns = new HashSet<>();
+      for (String column : outputColumns) {
+        this.outputColumns.add(column.toLowerCase());
+      }
+    }
+  }
+
+  /**
+   * Optimizes the directives of a recipe.
+   *
+   * @param directives of the recipe, in the order of execution.
+   * @return optimized directives, in the order of execution.
+   */
+  public List<Executor> optimize(List<Executor> directives) {
+    if (eliminateDirectives) {
+      directives = eliminateDeadColumns(directives);
+    }
+    return fuseProjections(fuseExtractions(fuseLineParsers(hoistFilters(directives))));
+  }
+
+  /**
+   * Removes the directives that only add or modify columns that are not used afterwards. The
+   * directives are walked from the last to the first, tracking the columns that are used by the
+   * directives following the one being looked at, which are passed to the {@link ColumnPruner}
+   * directives.
+   *
+   * @param directives to be optimized.
+   * @return directives whose results are used.
+   */
+  private List<Executor> eliminateDeadColumns(List<Executor> directives) {
+    LiveColumns live = new LiveColumns(outputColumns);
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    for (int i = directives.size() - 1; i >= 0; --i) {
+      Executor directive = directives.get(i);
+      if (directive instanceof ColumnPruner && !live.all) {
+        ((ColumnPruner) directive).pruneColumns(new HashSet<>(live.columns));
+      }
+      MutationDefinition lineage = null;
+      if (directive instanceof Mutator) {
+        lineage = ((Mutator) directive).lineage();
+      }
+      if (lineage == null) {
+        live.reviveAll();
+        optimized.add(directive);
+        continue;
+      }
+
+      List<Mutation> mutations = mutations(lineage);
+      boolean infallible = directive instanceof Infallible;
+      if (infallible && isDead(mutations, live)) {
+        continue;
+      }
+      update(mutations, infallible, live);
+      optimized.add(directive);
+    }
+    Collections.reverse(optimized);
+    return optimized;
+  }
+
+  /**
+   * Checks if a directive only writes columns that are not used afterwards.
+   *
+   * @param mutations of the directive.
+   * @param live columns used after the directive.
+   * @return true if the directive can be removed.
+   */
+  private static boolean isDead(List<Mutation> mutations, LiveColumns live) {
+    boolean writes = false;
+    for (Mutation mutation : mutations) {
+      MutationType type = mutation.type();
+      if (type == MutationType.ADD || type == MutationType.MODIFY) {
+        if (live.isLive(mutation.column())) {
+          return false;
+        }
+        writes = true;
+      } else if (type != MutationType.READ) {
+        return false;
+      }
+    }
+    return writes;
+  }
+
+  /**
+   * Updates the columns used after a directive into the columns used before the directive.
+   *
+   * @param mutations of the directive.
+   * @param infallible true if the directive can't fail, see {@link Infallible}.
+   * @param live columns used after the directive, updated to the columns used before it.
+   */
+  private static void update(List<Mutation> mutations, boolean infallible, LiveColumns live) {
+    // Columns added or dropped are not used before the directive, unless they are read by it too
+    // or the directive can fail, in which case it may fail depending on any of the columns named.
+    if (infallible) {
+      for (Mutation mutation : mutations) {
+        if (mutation.type() == MutationType.ADD || mutation.type() == MutationType.DROP) {
+          live.set(mutation.column(), false);
+        }
+      }
+    }
+    for (Mutation mutation : mutations) {
+      MutationType type = mutation.type();
+      if (!infallible || (type != MutationType.ADD && type != MutationType.DROP)) {
+        live.set(mutation.column(), true);
+      }
+    }
+  }
+
+  /**
+   * Moves each {@link RowFilter} ahead of the directives it can be evaluated before.
+   *
+   * @param directives to be optimized.
+   * @return directives with the filters moved as early as possible.
+   */
+  private static List<Executor> hoistFilters(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    for (Executor directive : directives) {
+      int position = optimized.size();
+      if (directive instanceof RowFilter) {
+        MutationDefinition lineage = ((RowFilter) directive).lineage();
+        if (lineage != null) {
+          Set<String> reads = new HashSet<>();
+          for (Mutation mutation : mutations(lineage)) {
+            reads.add(mutation.column().toLowerCase());
+          }
+          while (position > 0 && canHoist(reads, optimized.get(position - 1))) {
+            position--;
+          }
+        }
+      }
+      optimized.add(position, directive);
+    }
+    return optimized;
+  }
+
+  /**
+   * Checks if a filter reading the given columns can be evaluated before a directive.
+   *
+   * @param reads lower cased names of the columns read by the filter.
+   * @param directive preceding the filter.
+   * @return true if the directive can't fail and doesn't write the columns.
+   */
+  private static boolean canHoist(Set<String> reads, Executor directive) {
+    if (directive instanceof RowFilter || !(directive instanceof Infallible)) {
+      return false;
+    }
+    MutationDefinition lineage = ((Mutator) directive).lineage();
+    if (lineage == null) {
+      return false;
+    }
+    for (Mutation mutation : mutations(lineage)) {
+      if (mutation.type() != MutationType.READ && reads.contains(mutation.column().toLowerCase())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the columns written by the directives of a recipe, that is the columns added, dropped,
+   * renamed or modified by any of the directives. The other columns of the rows passed to the
+   * recipe come out of the recipe with the values they had when passed to it.
+   *
+   * @param directives of the recipe.
+   * @return lower cased names of the columns written, null if a directive has no known lineage.
+   */
+  @Nullable
+  public static Set<String> writtenColumns(List<Executor> directives) {
+    List<Executor> expanded = new ArrayList<>(directives.size());
+    for (Executor directive : directives) {
+      if (directive instanceof FusedProjection) {
+        expanded.addAll(((FusedProjection) directive).getProjections());
+      } else if (directive instanceof FusedExtraction) {
+        expanded.addAll(((FusedExtraction) directive).getExtractors());
+      } else {
+        expanded.add(directive);
+      }
+    }
+
+    Set<String> written = new HashSet<>();
+    for (Executor directive : expanded) {
+      MutationDefinition lineage = null;
+      if (directive instanceof Mutator) {
+        lineage = ((Mutator) directive).lineage();
+      }
+      if (lineage == null) {
+        return null;
+      }
+      for (Mutation mutation : mutations(lineage)) {
+        if (mutation.type() != MutationType.READ) {
+          written.add(mutation.column().toLowerCase());
+        }
+      }
+    }
+    return written;
+  }
+
+  private static List<Mutation> mutations(MutationDefinition lineage) {
+    List<Mutation> mutations = new ArrayList<>();
+    Iterator<Mutation> it = lineage.iterator();
+    while (it.hasNext()) {
+      mutations.add(it.next());
+    }
+    return mutations;
+  }
+
+  /**
+   * Replaces each {@link LineSplitter} directly followed by a {@link LineParser} of the column
+   * it splits with a {@link ParallelLineParser}.
+   *
+   * @param directives to be optimized.
+   * @return directives with the line parsers fused.
+   */
+  private static List<Executor> fuseLineParsers(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    for (int i = 0; i < directives.size(); ++i) {
+      Executor directive = directives.get(i);
+      if (directive instanceof LineSplitter && i + 1 < directives.size()
+        && directives.get(i + 1) instanceof LineParser) {
+        String column = ((LineSplitter) directive).getSplitColumn();
+        LineParser parser = (LineParser) directives.get(i + 1);
+        if (column != null && column.equals(parser.getParsedColumn())) {
+          optimized.add(new ParallelLineParser((LineSplitter) directive, parser));
+          ++i;
+          continue;
+        }
+      }
+      optimized.add(directive);
+    }
+    return optimized;
+  }
+
+  /**
+   * Replaces each run of two or more consecutive {@link PathExtractor} directives of the same
+   * class reading the same column with a {@link FusedExtraction}. Only the last extractor of a
+   * run may write to the column read, as the others extract from the documents parsed from it.
+   *
+   * @param directives to be optimized.
+   * @return directives with the extractors fused.
+   */
+  private static List<Executor> fuseExtractions(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    List<PathExtractor> run = new ArrayList<>();
+    for (Executor directive : directives) {
+      if (!run.isEmpty() && !canExtend(run, directive)) {
+        flushExtractions(run, optimized);
+      }
+      if (directive instanceof PathExtractor) {
+        run.add((PathExtractor) directive);
+      } else {
+        optimized.add(directive);
+      }
+    }
+    flushExtractions(run, optimized);
+    return optimized;
+  }
+
+  /**
+   * Checks if a directive can be fused with a run of extractors.
+   *
+   * @param run of extractors, not empty.
+   * @param directive following the run.
+   * @return true if the directive is an extractor reading the column of the run and no extractor
+   *         of the run writes to that column.
+   */
+  private static boolean canExtend(List<PathExtractor> run, Executor directive) {
+    PathExtractor first = run.get(0);
+    PathExtractor last = run.get(run.size() - 1);
+    return directive.getClass() == first.getClass()
+      && first.getSourceColumn().equals(((PathExtractor) directive).getSourceColumn())
+      && !last.getDestinationColumn().equalsIgnoreCase(first.getSourceColumn());
+  }
+
+  private static void flushExtractions(List<PathExtractor> run, List<Executor> optimized) {
+    if (run.size() > 1) {
+      optimized.add(new FusedExtraction(new ArrayList<>(run)));
+    } else {
+      optimized.addAll(run);
+    }
+    run.clear();
+  }
+
+  /**
+   * Replaces each run of two or more consecutive {@link ColumnProjection} directives with
+   * a {@link FusedProjection}.
+   *
+   * @param directives to be optimized.
+   * @return directives with the projections fused.
+   */
+  private List<Executor> fuseProjections(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    List<ColumnProjection> run = new ArrayList<>();
+    for (Executor directive : directives) {
+      if (directive instanceof ColumnProjection) {
+        run.add((ColumnProjection) directive);
+        continue;
+      }
+      flush(run, optimized);
+      optimized.add(directive);
+    }
+    flush(run, optimized);
+    return optimized;
+  }
+
+  private static void flush(List<ColumnProjection> run, List<Executor> optimized) {
+    if (run.size() > 1) {
+      optimized.add(new FusedProjection(new ArrayList<>(run)));
+    } else {
+      optimized.addAll(run);
+    }
+    run.clear();
+  }
+
+  /**
+   * Set of columns used at a point of the recipe. Either all the columns but the ones in
+   * <code>columns</code> are used, or only the ones in <code>columns</code>.
+   */
+  private static final class LiveColumns {
+    private final Set<String> columns = new HashSet<>();
+    private boolean all;
+
+    private LiveColumns(@Nullable Set<String> live) {
+      if (live == null) {
+        all = true;
+      } else {
+        columns.addAll(live);
+      }
+    }
+
+    private boolean isLive(String column) {
+      return all != columns.contains(column.toLowerCase());
+    }
+
+    private void set(String column, boolean live) {
+      if (live == all) {
+        columns.remove(column.toLowerCase());
+      } else {
+        columns.add(column.toLowerCase());
+      }
+    }
+
+    private void reviveAll() {
+      all = true;
+      columns.clear();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.lineage.Mutator;
+
+/**
+ * A {@link Directive} that removes rows based only on the values of the columns listed as read
+ * in its lineage, leaving the rows it keeps untouched. The {@link RecipeOptimizer} moves filters
+ * ahead of the {@link Infallible} directives that don't write the columns they read, so rows are
+ * dropped before more work is spent on them. Directives sending rows to error are not filters,
+ * as the rows sent to error would then be the rows as they are before the directives the filter
+ * moved ahead of.
+ */
+public interface RowFilter extends Directive, Mutator {
+}
@@ -48,7 +48,6 @@ public class GrammarBasedParser implements RecipeParser {
   private Compiler compiler = new RecipeCompiler();
   private DirectiveRegistry  registry;
   private String recipe;
-  private List<Executor> directives;
   private DirectiveContext context;
 
   public GrammarBasedParser(String[] directives, DirectiveRegistry registry) {
@@ -62,18 +61,19 @@ public class GrammarBasedParser implements RecipeParser {
   public GrammarBasedParser(String recipe, DirectiveRegistry registry) {
     this.recipe = recipe;
     this.registry = registry;
-    this.directives = new ArrayList<>();
     this.context = new NoOpDirectiveContext();
   }
 
   /**
-   * Generates a configured set of {@link Executor} to be executed.
+   * Generates a configured set of {@link Executor} to be executed. Each invocation generates
+   * a new set of directive instances.
    *
    * @return List of {@link Executor}.
    */
   @Override
   public List<Executor> parse()
     throws DirectiveLoadException, DirectiveNotFoundException, DirectiveParseException {
+    List<Executor> directives = new ArrayList<>();
     try {
       CompileStatus status = compiler.compile(recipe);
       if (!status.isSuccess()) {
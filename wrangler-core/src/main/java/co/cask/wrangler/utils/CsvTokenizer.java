@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tokenizer reading the records of a CSV text, as the default format of commons-csv does with a
+ * given delimiter, without copying the text read.
+ *
+ * <p>The text is scanned in place. A field is either a substring of the text or, for quoted
+ * fields holding escaped quotes, built in a buffer reused across the fields. Records are read into
+ * a list of fields supplied by the caller, which can be reused across the records, so that no
+ * object is allocated per record.</p>
+ *
+ * <p>Records are separated by <code>\n</code>, <code>\r</code> or <code>\r\n</code> and empty lines
+ * are skipped. A field starting with a double quote extends up to the next double quote that isn't
+ * doubled, and may hold delimiters and line breaks. Surrounding spaces are kept, except for those
+ * following the closing quote of a field, and quotes within a field that doesn't start with one
+ * are read as is.</p>
+ *
+ * <p>A tokenizer is meant to be reset for each text read, by a single thread.</p>
+ */
+public final class CsvTokenizer {
+  private static final char QUOTE = '"';
+
+  private final char delimiter;
+
+  // Buffer for the quoted fields holding escaped quotes.
+  private final StringBuilder buffer = new StringBuilder();
+
+  private String text = "";
+  private int position;
+  private int end;
+
+  /**
+   * Creates a tokenizer for the records of a CSV text.
+   *
+   * @param delimiter separating the fields of a record.
+   */
+  public CsvTokenizer(char delimiter) {
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * Resets the tokenizer for reading the records of a text.
+   *
+   * @param text holding the records.
+   * @return this tokenizer.
+   */
+  public CsvTokenizer reset(String text) {
+    return reset(text, 0, text.length());
+  }
+
+  /**
+   * Resets the tokenizer for reading the records held by a range of a text.
+   *
+   * @param text holding the records.
+   * @param start index of the first char of the range.
+   * @param end index following the last char of the range.
+   * @return this tokenizer.
+   */
+  public CsvTokenizer reset(String text, int start, int end) {
+    if (start < 0 || start > end || end > text.length()) {
+      throw new IndexOutOfBoundsException(String.format("Invalid range [%d, %d) of a text of length %d",
+                                                        start, end, text.length()));
+    }
+    this.text = text;
+    this.position = start;
+    this.end = end;
+    return this;
+  }
+
+  /**
+   * @return index of the text at which the next record is read.
+   */
+  public int position() {
+    return position;
+  }
+
+  /**
+   * Reads the next record of the text.
+   *
+   * @param fields to which the fields of the record are added, after being cleared.
+   * @return true if a record was read, false if there is no more record to read.
+   * @throws IOException if a quoted field isn't closed or is followed by anything other than spaces
+   *                     up to the next delimiter or line break.
+   */
+  public boolean next(List<String> fields) throws IOException {
+    fields.clear();
+    while (position < end && isLineBreak(text.charAt(position))) {
+      ++position;
+    }
+    if (position == end) {
+      return false;
+    }
+    while (true) {
+      if (position < end && text.charAt(position) == QUOTE) {
+        fields.add(quoted());
+      } else {
+        fields.add(simple());
+      }
+      if (position == end) {
+        return true;
+      }
+      char c = text.charAt(position++);
+      if (c != delimiter) {
+        // Line break, which is either of \n, \r or \r\n.
+        if (c == '\r' && position < end && text.charAt(position) == '\n') {
+          ++position;
+        }
+        return true;
+      }
+    }
+  }
+
+  private String simple() {
+    int start = position;
+    while (position < end) {
+      char c = text.charAt(position);
+      if (c == delimiter || isLineBreak(c)) {
+        break;
+      }
+      ++position;
+    }
+    return text.substring(start, position);
+  }
+
+  private String quoted() throws IOException {
+    int start = position;
+    // Start of the part of the field not yet copied to the buffer, if there are escaped quotes.
+    int from = ++position;
+    boolean escaped = false;
+    String value;
+    while (true) {
+      if (position == end) {
+        throw new IOException(String.format("(line %d) EOF reached before encapsulated token finished",
+                                            lineOf(start)));
+      }
+      if (text.charAt(position) == QUOTE) {
+        if (position + 1 < end && text.charAt(position + 1) == QUOTE) {
+          if (!escaped) {
+            buffer.setLength(0);
+            escaped = true;
+          }
+          buffer.append(text, from, position + 1);
+          position += 2;
+          from = position;
+          continue;
+        }
+        value = escaped ? buffer.append(text, from, position).toString() : text.substring(from, position);
+        ++position;
+        break;
+      }
+      ++position;
+    }
+    while (position < end) {
+      char c = text.charAt(position);
+      if (c == delimiter || isLineBreak(c)) {
+        break;
+      }
+      if (!Character.isWhitespace(c)) {
+        throw new IOException(String.format("(line %d) invalid char between encapsulated token and delimiter",
+                                            lineOf(position)));
+      }
+      ++position;
+    }
+    return value;
+  }
+
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  /**
+   * Computes the line of the text an index is at, only when reporting an error.
+   */
+  private int lineOf(int index) {
+    int line = 1;
+    for (int i = 0; i < index; ++i) {
+      char c = text.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+        ++line;
+      }
+    }
+    return line;
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.directives.parser.JsParser;
+import co.cask.wrangler.api.Row;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the values of a {@link Row} into the type specified by a {@link Schema}.
+ *
+ * <p>A decoder is built once for a schema, with the decoders of the nested schemas built along
+ * with it, so decoding a value doesn't dispatch on the type of the schema. Nullable unions are
+ * resolved when the decoder is built, other unions decode a value with the first of their types
+ * able to decode it.</p>
+ */
+public abstract class FieldDecoder implements Serializable {
+
+  /**
+   * Decodes a value.
+   *
+   * @param name of the field being decoded, used for reporting errors.
+   * @param object value to be decoded.
+   * @return decoded value.
+   * @throws RecordConvertorException if the value can't be decoded into the type of the schema.
+   */
+  public abstract Object decode(String name, Object object) throws RecordConvertorException;
+
+  /**
+   * Builds the decoder for a schema.
+   *
+   * @param schema of the values to be decoded.
+   * @return decoder of the values.
+   */
+  public static FieldDecoder of(Schema schema) {
+    return of(schema, new HashMap<String, RecordDecoder>());
+  }
+
+  /**
+   * Builds the decoder for a schema.
+   *
+   * @param schema of the values to be decoded.
+   * @param records decoders of the records being built, by name of the record, used for
+   *                resolving the records referring to themselves.
+   * @return decoder of the values.
+   */
+  private static FieldDecoder of(Schema schema, Map<String, RecordDecoder> records) {
+    switch (schema.getType()) {
+      case NULL:
+        return new NullDecoder();
+      case BOOLEAN:
+        return new BooleanDecoder();
+      case INT:
+        return new IntDecoder();
+      case LONG:
+        return new LongDecoder();
+      case FLOAT:
+        return new FloatDecoder();
+      case DOUBLE:
+        return new DoubleDecoder();
+      case BYTES:
+        return new BytesDecoder();
+      case STRING:
+        return new StringDecoder();
+      case ARRAY:
+        return new ArrayDecoder(of(schema.getComponentSchema(), records));
+      case MAP:
+        Map.Entry<Schema, Schema> map = schema.getMapSchema();
+        return new MapDecoder(of(map.getKey(), records), of(map.getValue(), records));
+      case RECORD:
+        RecordDecoder record = records.get(schema.getRecordName());
+        if (record != null) {
+          return record;
+        }
+        record = new RecordDecoder(schema);
+        records.put(schema.getRecordName(), record);
+        record.build(records);
+        return record;
+      case UNION:
+        List<FieldDecoder> decoders = new ArrayList<>();
+        boolean nullable = false;
+        for (Schema union : schema.getUnionSchemas()) {
+          if (union.getType() == Schema.Type.NULL) {
+            nullable = true;
+          } else {
+            decoders.add(of(union, records));
+          }
+        }
+        if (decoders.isEmpty()) {
+          return new NullDecoder();
+        }
+        if (nullable && decoders.size() == 1) {
+          return new NullableDecoder(decoders.get(0));
+        }
+        return new UnionDecoder(decoders.toArray(new FieldDecoder[decoders.size()]), nullable);
+      default:
+        return new UnsupportedDecoder(schema.getType());
+    }
+  }
+
+  private static boolean isNull(Object object) {
+    return object == null || object instanceof JsonNull;
+  }
+
+  /**
+   * Decoder of a simple type. Nulls decode into null and JSON primitives into their value.
+   */
+  private abstract static class SimpleDecoder extends FieldDecoder {
+    @Override
+    public final Object decode(String name, Object object) throws RecordConvertorException {
+      if (isNull(object)) {
+        return null;
+      } else if (object instanceof JsonPrimitive) {
+        return JsParser.getValue((JsonPrimitive) object);
+      }
+      return convert(name, object);
+    }
+
+    abstract Object convert(String name, Object object) throws RecordConvertorException;
+  }
+
+  private static final class NullDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) {
+      return null;
+    }
+  }
+
+  private static final class IntDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof Integer) {
+        return object;
+      } else if (object instanceof Short) {
+        return ((Short) object).intValue();
+      } else if (object instanceof String) {
+        String value = (String) object;
+        try {
+          return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          throw new RecordConvertorException(
+            String.format("Unable to convert '%s' to integer for field name '%s'", value, name)
+          );
+        }
+      }
+      throw new RecordConvertorException(
+        String.format("Schema specifies field '%s' is integer, but the value is not a integer or string. " +
+                        "It is of type '%s'", name, object.getClass().getName())
+      );
+    }
+  }
+
+  private static final class LongDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof Long) {
+        return object;
+      } else if (object instanceof Integer) {
+        return ((Integer) object).longValue();
+      } else if (object instanceof Date) {
+        // Covers java.sql.Date, Time and Timestamp as well, converting from milli-seconds to seconds.
+        return ((Date) object).getTime() / 1000;
+      } else if (object instanceof Short) {
+        return ((Short) object).longValue();
+      } else if (object instanceof String) {
+        String value = (String) object;
+        try {
+          return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+          throw new RecordConvertorException(
+            String.format("Unable to convert '%s' to long for field name '%s'", value, name)
+          );
+        }
+      }
+      throw new RecordConvertorException(
+        String.format("Schema specifies field '%s' is long, but the value is nor a string or long. " +
+                        "It is of type '%s'", name, object.getClass().getName())
+      );
+    }
+  }
+
+  private static final class FloatDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof Float) {
+        return object;
+      } else if (object instanceof Long) {
+        return ((Long) object).floatValue();
+      } else if (object instanceof Integer) {
+        return ((Integer) object).floatValue();
+      } else if (object instanceof Short) {
+        return ((Short) object).floatValue();
+      } else if (object instanceof String) {
+        String value = (String) object;
+        try {
+          return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+          throw new RecordConvertorException(
+            String.format("Unable to convert '%s' to float for field name '%s'", value, name)
+          );
+        }
+      }
+      throw new RecordConvertorException(
+        String.format("Schema specifies field '%s' is float, but the value is nor a string or float. " +
+                        "It is of type '%s'", name, object.getClass().getName())
+      );
+    }
+  }
+
+  private static final class DoubleDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof Double) {
+        return object;
+      } else if (object instanceof BigDecimal) {
+        return ((BigDecimal) object).doubleValue();
+      } else if (object instanceof Float) {
+        return ((Float) object).doubleValue();
+      } else if (object instanceof Long) {
+        return ((Long) object).doubleValue();
+      } else if (object instanceof Integer) {
+        return ((Integer) object).doubleValue();
+      } else if (object instanceof Short) {
+        return ((Short) object).doubleValue();
+      } else if (object instanceof String) {
+        String value = (String) object;
+        try {
+          return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+          throw new RecordConvertorException(
+            String.format("Unable to convert '%s' to double for field name '%s'", value, name)
+          );
+        }
+      }
+      throw new RecordConvertorException(
+        String.format("Schema specifies field '%s' is double, but the value is nor a string or double. " +
+                        "It is of type '%s'", name, object.getClass().getName())
+      );
+    }
+  }
+
+  private static final class BooleanDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof Boolean) {
+        return object;
+      } else if (object instanceof String) {
+        return Boolean.parseBoolean((String) object);
+      }
+      throw new RecordConvertorException(
+        String.format("Schema specifies field '%s' is boolean, but the value is nor a string or boolean. " +
+                        "It is of type '%s'", name, object.getClass().getName())
+      );
+    }
+  }
+
+  private static final class StringDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) {
+      return object.toString();
+    }
+  }
+
+  private static final class BytesDecoder extends SimpleDecoder {
+    @Override
+    Object convert(String name, Object object) throws RecordConvertorException {
+      if (object instanceof byte[]) {
+        return object;
+      } else if (object instanceof Boolean) {
+        return Bytes.toBytes((Boolean) object);
+      } else if (object instanceof Double) {
+        return Bytes.toBytes((Double) object);
+      } else if (object instanceof Float) {
+        return Bytes.toBytes((Float) object);
+      } else if (object instanceof Long) {
+        return Bytes.toBytes((Long) object);
+      } else if (object instanceof Integer) {
+        return Bytes.toBytes((Integer) object);
+      } else if (object instanceof Short) {
+        return Bytes.toBytes((Short) object);
+      } else if (object instanceof String) {
+        return Bytes.toBytes((String) object);
+      } else if (object instanceof BigDecimal) {
+        return Bytes.toBytes((BigDecimal) object);
+      }
+      throw new RecordConvertorException(
+        String.format("Unable to convert '%s' to bytes for field name '%s'", object.toString(), name)
+      );
+    }
+  }
+
+  /**
+   * Decoder of a union of null and another type.
+   */
+  private static final class NullableDecoder extends FieldDecoder {
+    private final FieldDecoder decoder;
+
+    private NullableDecoder(FieldDecoder decoder) {
+      this.decoder = decoder;
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      if (isNull(object)) {
+        return null;
+      }
+      return decoder.decode(name, object);
+    }
+  }
+
+  /**
+   * Decoder of a union of several types, decoding a value with the first type able to decode it.
+   */
+  private static final class UnionDecoder extends FieldDecoder {
+    private final FieldDecoder[] decoders;
+    private final boolean nullable;
+
+    private UnionDecoder(FieldDecoder[] decoders, boolean nullable) {
+      this.decoders = decoders;
+      this.nullable = nullable;
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      if (nullable && isNull(object)) {
+        return null;
+      }
+      for (FieldDecoder decoder : decoders) {
+        try {
+          return decoder.decode(name, object);
+        } catch (RecordConvertorException e) {
+          // Tries the next type of the union.
+        }
+      }
+      throw new RecordConvertorException(
+        String.format("Unable decode object '%s' with any of the types of the union.", name)
+      );
+    }
+  }
+
+  private static final class ArrayDecoder extends FieldDecoder {
+    private final FieldDecoder decoder;
+
+    private ArrayDecoder(FieldDecoder decoder) {
+      this.decoder = decoder;
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      if (object instanceof List) {
+        List<?> list = (List<?>) object;
+        List<Object> array = new ArrayList<>(list.size());
+        for (Object value : list) {
+          array.add(decoder.decode(name, value));
+        }
+        return array;
+      } else if (object instanceof JsonArray) {
+        JsonArray list = (JsonArray) object;
+        List<Object> array = new ArrayList<>(list.size());
+        for (JsonElement value : list) {
+          array.add(decoder.decode(name, value));
+        }
+        return array;
+      }
+      throw new RecordConvertorException(
+        String.format("Unable to decode array '%s'", name)
+      );
+    }
+  }
+
+  private static final class MapDecoder extends FieldDecoder {
+    private final FieldDecoder keyDecoder;
+    private final FieldDecoder valueDecoder;
+
+    private MapDecoder(FieldDecoder keyDecoder, FieldDecoder valueDecoder) {
+      this.keyDecoder = keyDecoder;
+      this.valueDecoder = valueDecoder;
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      if (!(object instanceof Map)) {
+        throw new RecordConvertorException(
+          String.format("Unable decode object '%s' with schema type '%s'.", name, Schema.Type.MAP.toString())
+        );
+      }
+      Map<Object, Object> output = new HashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        output.put(keyDecoder.decode(name, entry.getKey()), valueDecoder.decode(name, entry.getValue()));
+      }
+      return output;
+    }
+  }
+
+  private static final class RecordDecoder extends FieldDecoder {
+    private final Schema schema;
+    private String[] names;
+    private FieldDecoder[] decoders;
+
+    private RecordDecoder(Schema schema) {
+      this.schema = schema;
+    }
+
+    /**
+     * Builds the decoders of the fields, once the record is registered, so that fields referring
+     * to the record resolve to this decoder.
+     */
+    private void build(Map<String, RecordDecoder> records) {
+      List<Schema.Field> fields = schema.getFields();
+      names = new String[fields.size()];
+      decoders = new FieldDecoder[fields.size()];
+      for (int i = 0; i < fields.size(); ++i) {
+        names[i] = fields.get(i).getName();
+        decoders[i] = of(fields.get(i).getSchema(), records);
+      }
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      if (object instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) object;
+        for (int i = 0; i < names.length; ++i) {
+          builder.set(names[i], decoders[i].decode(name, map.get(names[i])));
+        }
+      } else if (object instanceof JsonObject) {
+        JsonObject json = (JsonObject) object;
+        for (int i = 0; i < names.length; ++i) {
+          builder.set(names[i], decoders[i].decode(name, json.get(names[i])));
+        }
+      } else {
+        throw new RecordConvertorException(
+          String.format("Unable decode object '%s' with schema type '%s'.", name, Schema.Type.RECORD.toString())
+        );
+      }
+      return builder.build();
+    }
+  }
+
+  private static final class UnsupportedDecoder extends FieldDecoder {
+    private final Schema.Type type;
+
+    private UnsupportedDecoder(Schema.Type type) {
+      this.type = type;
+    }
+
+    @Override
+    public Object decode(String name, Object object) throws RecordConvertorException {
+      throw new RecordConvertorException(
+        String.format("Unable decode object '%s' with schema type '%s'.", name, type.toString())
+      );
+    }
+  }
+}
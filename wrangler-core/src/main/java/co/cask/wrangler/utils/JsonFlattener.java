@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.dq.TypeInference;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Flattens a JSON object into the columns of a {@link Row} while reading it from a
+ * {@link JsonReader}, without building a tree of the object.
+ *
+ * <p>The columns are named and valued as by
+ * {@link co.cask.directives.parser.JsParser#flattenJson}: the members of nested objects up to the
+ * maximum depth are named after the path to them, joined by <code>_</code>, objects beyond the
+ * maximum depth and arrays are added as trees, and null values as {@link JsonNull}. The names of
+ * the columns are cached along the paths they are built for, as the documents flattened mostly
+ * share their structure.</p>
+ *
+ * <p>When the columns used afterwards are known, see {@link #prune(Set)}, the members whose
+ * columns are not used are skipped rather than read.</p>
+ *
+ * <p>A flattener is meant to be used by a single thread.</p>
+ */
+public final class JsonFlattener {
+  // Maximum number of column names cached, beyond which names are built for each member.
+  private static final int MAX_NAMES = 10000;
+
+  private final int maxDepth;
+  private final JsonParser parser = new JsonParser();
+
+  // Keys of the objects being read, for each depth, for detecting duplicated keys.
+  private final List<Set<String>> keys = new ArrayList<>();
+
+  // Lower cased names of the columns used, and of the objects holding them, null if all are.
+  private Set<String> used;
+  private Set<String> parents;
+
+  private Name root;
+  private int names;
+
+  /**
+   * Creates a flattener of JSON objects.
+   *
+   * @param column name of the column holding the objects, prefixing the names of the columns.
+   * @param maxDepth maximum depth to which the objects are flattened, the object itself being at depth 1.
+   */
+  public JsonFlattener(String column, int maxDepth) {
+    this.maxDepth = maxDepth;
+    this.root = new Name(column, false);
+  }
+
+  /**
+   * Restricts the columns added by the flattener to the ones used afterwards.
+   *
+   * @param columns lower cased names of the columns used, null if all are.
+   */
+  public void prune(@Nullable Set<String> columns) {
+    if (columns == null) {
+      used = null;
+      parents = null;
+    } else {
+      used = new HashSet<>(columns);
+      parents = new HashSet<>();
+      for (String column : columns) {
+        for (int i = column.indexOf('_'); i != -1; i = column.indexOf('_', i + 1)) {
+          parents.add(column.substring(0, i));
+        }
+      }
+    }
+    root = new Name(root.name, false);
+    names = 0;
+  }
+
+  /**
+   * Flattens the object read next into a row.
+   *
+   * <p>An object holding the same key twice has the last value of the key replace the first one,
+   * wherever it is, which can't be reproduced in a single pass. The columns added for the object
+   * are removed, and the object is to be flattened from a tree instead.</p>
+   *
+   * @param reader positioned at the beginning of the object.
+   * @param row to which the columns are added.
+   * @return true if the object was flattened, false if it holds duplicated keys.
+   * @throws IOException if the object is malformed.
+   */
+  public boolean flatten(JsonReader reader, Row row) throws IOException {
+    int length = row.length();
+    if (object(reader, root, 1, row)) {
+      return true;
+    }
+    while (row.length() > length) {
+      row.remove(row.length() - 1);
+    }
+    return false;
+  }
+
+  private boolean object(JsonReader reader, Name parent, int depth, Row row) throws IOException {
+    if (depth > maxDepth) {
+      row.addOrSet(parent.name, parser.parse(reader));
+      return true;
+    }
+
+    while (keys.size() < depth) {
+      keys.add(new HashSet<String>());
+    }
+    Set<String> seen = keys.get(depth - 1);
+    seen.clear();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String key = reader.nextName();
+      if (!seen.add(key)) {
+        return false;
+      }
+      Name name = parent.child(key);
+      if (name.unused) {
+        reader.skipValue();
+        continue;
+      }
+      switch (reader.peek()) {
+        case BEGIN_OBJECT:
+          if (!object(reader, name, depth + 1, row)) {
+            return false;
+          }
+          break;
+        case BEGIN_ARRAY:
+          row.add(name.name, parser.parse(reader));
+          break;
+        case NUMBER:
+          row.add(name.name, toNumber(reader.nextString()));
+          break;
+        case BOOLEAN:
+          row.add(name.name, reader.nextBoolean());
+          break;
+        case NULL:
+          reader.nextNull();
+          row.add(name.name, JsonNull.INSTANCE);
+          break;
+        default:
+          row.add(name.name, reader.nextString());
+          break;
+      }
+    }
+    reader.endObject();
+    return true;
+  }
+
+  /**
+   * Converts a number the way {@link co.cask.directives.parser.JsParser#getValue} converts the
+   * numbers parsed into a tree.
+   */
+  private static Object toNumber(String value) {
+    if (TypeInference.isInteger(value)) {
+      return new BigInteger(value).longValue();
+    }
+    return new BigDecimal(value).doubleValue();
+  }
+
+  /**
+   * Name of the column of a member, along with the names of the columns of its members.
+   */
+  private final class Name {
+    private final String name;
+    private final boolean unused;
+    private Map<String, Name> children;
+
+    private Name(String name, boolean unused) {
+      this.name = name;
+      this.unused = unused;
+    }
+
+    private Name child(String key) {
+      Name child = children == null ? null : children.get(key);
+      if (child != null) {
+        return child;
+      }
+      String column = name + "_" + key;
+      boolean unused = false;
+      if (used != null) {
+        String lower = column.toLowerCase();
+        unused = !used.contains(lower) && !parents.contains(lower);
+      }
+      child = new Name(column, unused);
+      if (names < MAX_NAMES) {
+        if (children == null) {
+          children = new HashMap<>();
+        }
+        children.put(key, child);
+        ++names;
+      }
+      return child;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Compiles JSON path expressions, caching the compiled paths by the text of the expression, as
+ * the same paths are read from every row and by every call of the expression functions.
+ * Compiled paths are thread safe.
+ */
+public final class JsonPaths {
+  // Maximum number of compiled paths kept in the cache.
+  private static final int PATH_CACHE_SIZE = 1024;
+
+  private static final Cache<String, JsonPath> PATHS = CacheBuilder.newBuilder()
+    .maximumSize(PATH_CACHE_SIZE)
+    .recordStats()
+    .build();
+
+  private JsonPaths() { }
+
+  /**
+   * Compiles a JSON path expression, reusing the path compiled previously for the same
+   * expression, if it's still cached.
+   *
+   * @param path expression to be compiled.
+   * @return compiled path.
+   * @throws com.jayway.jsonpath.InvalidPathException if the expression is not valid.
+   */
+  public static JsonPath compile(String path) {
+    JsonPath compiled = PATHS.getIfPresent(path);
+    if (compiled == null) {
+      // Paths compiled concurrently for the same expression are equivalent, either can be kept.
+      compiled = JsonPath.compile(path);
+      PATHS.put(path, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * @return statistics of the cache of compiled paths, such as its hit and miss counts.
+   */
+  public static CacheStats getCacheStats() {
+    return PATHS.stats();
+  }
+}
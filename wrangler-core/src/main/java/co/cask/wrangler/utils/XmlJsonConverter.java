@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts a XML document to JSON in a single pass of a {@link XMLStreamReader}, building the
+ * {@link JsonObject} the document converts to as its elements are read.
+ *
+ * <p>The document converts the same way as through <code>org.json.XML.toJSONObject</code> and
+ * then reading the resulting JSON text with Gson, without materializing either of them:</p>
+ * <ul>
+ *   <li>an element converts to an object holding its attributes and its child elements by name,
+ *   the elements and attributes sharing a name being collected in an array;</li>
+ *   <li>the text of an element is trimmed and held by its <code>content</code> member, unless
+ *   the element has neither attributes nor children, in which case the element converts to its
+ *   text, an empty element converting to an empty string;</li>
+ *   <li>texts and attribute values are converted to booleans, nulls and numbers when they read
+ *   as such, the text of CDATA sections is kept as it is;</li>
+ *   <li>comments, processing instructions and the document type are skipped.</li>
+ * </ul>
+ *
+ * <p>Members are kept in the order they appear in the document. A converter is meant to be
+ * used by a single thread.</p>
+ */
+public final class XmlJsonConverter {
+  // Name of the member holding the text of an element.
+  private static final String CONTENT = "content";
+
+  // Property of the JDK implementation reporting CDATA sections apart from the text around them.
+  private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+  private final XMLInputFactory factory;
+
+  // Text of the element being read, since the last event that is not text.
+  private final StringBuilder text = new StringBuilder();
+
+  public XmlJsonConverter() {
+    this.factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    if (factory.isPropertySupported(REPORT_CDATA)) {
+      factory.setProperty(REPORT_CDATA, true);
+    }
+  }
+
+  /**
+   * Converts a XML document.
+   *
+   * @param xml document to be converted.
+   * @return object holding the root element of the document by its name.
+   * @throws XMLStreamException if the document is not well formed.
+   */
+  public JsonObject convert(String xml) throws XMLStreamException {
+    XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+    try {
+      // Elements being read, along with their names, the document itself first.
+      List<JsonObject> objects = new ArrayList<>();
+      List<String> names = new ArrayList<>();
+      JsonObject root = new JsonObject();
+      JsonObject current = root;
+      text.setLength(0);
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            addText(current);
+            objects.add(current);
+            names.add(name(reader.getPrefix(), reader.getLocalName()));
+            current = new JsonObject();
+            for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+              String prefix = reader.getNamespacePrefix(i);
+              String name = prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+              accumulate(current, name, toValue(reader.getNamespaceURI(i)));
+            }
+            for (int i = 0; i < reader.getAttributeCount(); ++i) {
+              String name = name(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+              accumulate(current, name, toValue(reader.getAttributeValue(i)));
+            }
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            addText(current);
+            JsonObject element = current;
+            current = objects.remove(objects.size() - 1);
+            accumulate(current, names.remove(names.size() - 1), valueOf(element));
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            if (!names.isEmpty()) {
+              text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+
+          case XMLStreamConstants.CDATA:
+            addText(current);
+            if (!names.isEmpty() && reader.getTextLength() > 0) {
+              accumulate(current, CONTENT, new JsonPrimitive(reader.getText()));
+            }
+            break;
+
+          default:
+            // Comments and processing instructions end the text preceding them.
+            addText(current);
+            break;
+        }
+      }
+      return root;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static String name(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  /**
+   * Adds the text read since the last event that is not text to the content of an element.
+   */
+  private void addText(JsonObject element) {
+    if (text.length() == 0) {
+      return;
+    }
+    int start = 0;
+    while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+      start++;
+    }
+    String string = text.substring(start).trim();
+    text.setLength(0);
+    if (!string.isEmpty()) {
+      accumulate(element, CONTENT, toValue(string));
+    }
+  }
+
+  /**
+   * @return value an element converts to, once all of it has been read.
+   */
+  private static JsonElement valueOf(JsonObject element) {
+    int size = element.entrySet().size();
+    if (size == 0) {
+      return new JsonPrimitive("");
+    }
+    if (size == 1 && element.has(CONTENT)) {
+      return element.get(CONTENT);
+    }
+    return element;
+  }
+
+  /**
+   * Adds a value to an object, collecting the values of a member into an array when the member
+   * is already present.
+   */
+  private static void accumulate(JsonObject object, String name, JsonElement value) {
+    JsonElement existing = object.get(name);
+    if (existing == null) {
+      if (value.isJsonArray()) {
+        JsonArray array = new JsonArray();
+        array.add(value);
+        value = array;
+      }
+      object.add(name, value);
+    } else if (existing.isJsonArray()) {
+      existing.getAsJsonArray().add(value);
+    } else {
+      JsonArray array = new JsonArray();
+      array.add(existing);
+      array.add(value);
+      object.add(name, array);
+    }
+  }
+
+  /**
+   * Converts a text or an attribute value to a boolean, a null or a number when it reads as such.
+   *
+   * @param string to be converted.
+   * @return value of the string.
+   */
+  static JsonElement toValue(String string) {
+    if (string.isEmpty()) {
+      return new JsonPrimitive(string);
+    }
+    if ("true".equalsIgnoreCase(string)) {
+      return new JsonPrimitive(Boolean.TRUE);
+    }
+    if ("false".equalsIgnoreCase(string)) {
+      return new JsonPrimitive(Boolean.FALSE);
+    }
+    if ("null".equalsIgnoreCase(string)) {
+      return JsonNull.INSTANCE;
+    }
+    char initial = string.charAt(0);
+    if ((initial >= '0' && initial <= '9') || initial == '-') {
+      String number = toNumber(string);
+      if (number != null) {
+        return new JsonPrimitive(new LazilyParsedNumber(number));
+      }
+    }
+    return new JsonPrimitive(string);
+  }
+
+  /**
+   * Reads a string starting like a number as a number.
+   *
+   * @param string to be read.
+   * @return number as it is written in JSON, null if the string is not a number.
+   */
+  private static String toNumber(String string) {
+    char initial = string.charAt(0);
+    try {
+      if (string.indexOf('.') > -1 || string.indexOf('e') > -1 || string.indexOf('E') > -1
+        || "-0".equals(string)) {
+        Number number;
+        try {
+          BigDecimal decimal = new BigDecimal(string);
+          number = initial == '-' && BigDecimal.ZERO.compareTo(decimal) == 0 ? (Number) (-0.0d) : decimal;
+        } catch (NumberFormatException e) {
+          // Such as hexadecimal floating point numbers.
+          Double value = Double.valueOf(string);
+          if (value.isNaN() || value.isInfinite()) {
+            return null;
+          }
+          number = value;
+        }
+        return toString(number);
+      }
+
+      // Leading zeros are not allowed.
+      if (initial == '0' && string.length() > 1) {
+        if (isDigit(string.charAt(1))) {
+          return null;
+        }
+      } else if (initial == '-' && string.length() > 2) {
+        if (string.charAt(1) == '0' && isDigit(string.charAt(2))) {
+          return null;
+        }
+      }
+      return new BigInteger(string).toString();
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * @return number as it is written in JSON, without the trailing zeros of its fraction.
+   */
+  private static String toString(Number number) {
+    String string = number.toString();
+    if (string.indexOf('.') > 0 && string.indexOf('e') < 0 && string.indexOf('E') < 0) {
+      int end = string.length();
+      while (string.charAt(end - 1) == '0') {
+        end--;
+      }
+      if (string.charAt(end - 1) == '.') {
+        end--;
+      }
+      string = string.substring(0, end);
+    }
+    return string;
+  }
+}
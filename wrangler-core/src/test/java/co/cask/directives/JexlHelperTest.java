@@ -0,0 +1,45 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package co.cask.directives;
+
+import com.google.common.cache.CacheStats;
+import org.apache.commons.jexl3.JexlScript;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link JexlHelper}
+ */
+public class JexlHelperTest {
+
+  @Test
+  public void testEngineIsShared() throws Exception {
+    Assert.assertSame(JexlHelper.getEngine(), JexlHelper.getEngine());
+  }
+
+  @Test
+  public void testScriptsAreCached() throws Exception {
+    CacheStats before = JexlHelper.getScriptCacheStats();
+    JexlScript first = JexlHelper.compile("a + b * 17");
+    JexlScript second = JexlHelper.compile("a + b * 17");
+    CacheStats stats = JexlHelper.getScriptCacheStats().minus(before);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, stats.missCount());
+    Assert.assertEquals(1, stats.hitCount());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package co.cask.directives;
+
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link RowContext}
+ */
+public class RowContextTest {
+
+  @Test
+  public void testColumnsAreMatchedByExactName() throws Exception {
+    RowContext context = new RowContext(Arrays.asList("id", "ID"));
+    Row row = new Row("id", 1).add("ID", 2);
+    context.reset(row);
+    Assert.assertEquals(1, context.get("id"));
+    Assert.assertEquals(2, context.get("ID"));
+    Assert.assertFalse(context.has("Id"));
+
+    // Rows with the columns in another order.
+    context.reset(new Row("ID", 3).add("id", 4));
+    Assert.assertEquals(4, context.get("id"));
+    Assert.assertEquals(3, context.get("ID"));
+  }
+
+  @Test
+  public void testLastDuplicateColumnWins() throws Exception {
+    RowContext context = new RowContext(Arrays.asList("a"));
+    context.reset(new Row("a", 1).add("b", 2).add("a", 3));
+    Assert.assertEquals(3, context.get("a"));
+
+    // The position remembered from the previous row is the first of the duplicates here.
+    context.reset(new Row("b", 2).add("a", 3).add("a", 4));
+    Assert.assertEquals(4, context.get("a"));
+    context.reset(new Row("b", 2).add("a", 5));
+    Assert.assertEquals(5, context.get("a"));
+
+    // Columns not known up front are looked up the same way.
+    RowContext unknown = new RowContext(null);
+    unknown.reset(new Row("a", 1).add("a", 2));
+    Assert.assertEquals(2, unknown.get("a"));
+  }
+
+  @Test
+  public void testWideRows() throws Exception {
+    RowContext context = new RowContext(Arrays.asList("c5", "C5"));
+    Row row = new Row();
+    for (int i = 0; i < 20; ++i) {
+      row.add("c" + i, i);
+    }
+    context.reset(row);
+    Assert.assertEquals(5, context.get("c5"));
+    Assert.assertFalse(context.has("C5"));
+
+    // Columns sharing a name, ignoring the case, added after the position remembered.
+    row.add("C5", 20).add("c5", 21);
+    context.reset(row);
+    Assert.assertEquals(21, context.get("c5"));
+    Assert.assertEquals(20, context.get("C5"));
+  }
+}
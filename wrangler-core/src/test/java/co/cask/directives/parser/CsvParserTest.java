@@ -52,4 +52,24 @@ public class CsvParserTest {
     Assert.assertTrue(rows.size() == 2);
     Assert.assertEquals("07/29/2013", rows.get(0).getValue("date"));
   }
+
+  @Test
+  public void testHeaderAndQuotedFields() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv body , true",
+      "drop body"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "name,city,note"),
+      new Row("body", "joltie,\"San Jose, CA\",\"says \"\"hi\"\"\""),
+      new Row("body", "root,Palo Alto,")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("San Jose, CA", rows.get(0).getValue("city"));
+    Assert.assertEquals("says \"hi\"", rows.get(0).getValue("note"));
+    Assert.assertEquals("", rows.get(1).getValue("note"));
+  }
 }
@@ -17,10 +17,14 @@
 package co.cask.directives.parser;
 
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Executor;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.optimizer.RecipeOptimizer;
+import com.google.gson.JsonObject;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -156,4 +160,56 @@ public class JsParserTest {
     rows = TestingRig.execute(directives, rows);
     Assert.assertTrue(rows.size() == 5);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDepthAppliesToAllMembers() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-json body 1"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{\"a\": {\"x\": 1}, \"b\": {\"y\": 2}, \"c\": 3}")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(1, rows.size());
+    Assert.assertTrue(rows.get(0).getValue("body_a") instanceof JsonObject);
+    Assert.assertTrue(rows.get(0).getValue("body_b") instanceof JsonObject);
+    Assert.assertEquals(3L, rows.get(0).getValue("body_c"));
+  }
+
+  @Test
+  public void testDuplicatedKeys() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-json body"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{\"a\": {\"x\": 1}, \"b\": 2, \"a\": {\"y\": 3}}")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(2, rows.get(0).length());
+    Assert.assertEquals(3L, rows.get(0).getValue("body_a_y"));
+    Assert.assertEquals(2L, rows.get(0).getValue("body_b"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testUnusedMembersAreSkipped() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-json body"
+    };
+
+    List<Executor> optimized = new RecipeOptimizer(Arrays.asList("id", "body_user_name"))
+      .optimize(TestingRig.parse(directives).parse());
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row("id", 1).add("body", "{\"user\": {\"name\": \"n\", \"geo\": {\"lat\": 1.5}}, " +
+                                       "\"tags\": [\"t\"]}"));
+    rows = ((Executor<List<Row>, List<Row>>) optimized.get(0)).execute(rows, null);
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(2, rows.get(0).length());
+    Assert.assertEquals("n", rows.get(0).getValue("body_user_name"));
+  }
+}
@@ -76,4 +76,21 @@ public class SplitToRowsTest {
     Assert.assertTrue(rows.size() == 4);
   }
 
+  @Test
+  public void testEmptyPiecesAreSplitAsString() throws Exception {
+    String[] directives = new String[] {
+      "split-to-rows body ,",
+    };
+
+    String[] values = new String[] { ",a,,b,,", "", ",,", "a" };
+    for (String value : values) {
+      List<Row> rows = TestingRig.execute(directives, Arrays.asList(new Row("body", value)));
+      String[] expected = value.split(",");
+      Assert.assertEquals(expected.length, rows.size());
+      for (int i = 0; i < expected.length; ++i) {
+        Assert.assertEquals(expected[i], rows.get(i).getValue("body"));
+      }
+    }
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package co.cask.directives.transformation;
+
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link ColumnExpression}
+ */
+public class ColumnExpressionTest {
+
+  @Test
+  public void testExpressionOnRows() throws Exception {
+    String[] directives = new String[] {
+      "set-column c a + b",
+      "set-column d this.length()",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("a", 1).add("b", 2),
+      new Row("b", 3).add("a", 4).add("x", 0)
+    );
+
+    rows = TestingRig.execute(directives, rows);
+
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals(3, rows.get(0).getValue("c"));
+    Assert.assertEquals(3, rows.get(0).getValue("d"));
+    Assert.assertEquals(7, rows.get(1).getValue("c"));
+    Assert.assertEquals(4, rows.get(1).getValue("d"));
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testColumnsDoNotLeakAcrossRows() throws Exception {
+    String[] directives = new String[] {
+      "set-column c b",
+    };
+
+    // The second row has no column 'b', which used to be read from the first row.
+    List<Row> rows = Arrays.asList(
+      new Row("a", 1).add("b", 2),
+      new Row("a", 3)
+    );
+
+    TestingRig.execute(directives, rows);
+  }
+}
@@ -18,6 +18,8 @@ package co.cask.directives.xml;
 
 import co.cask.wrangler.TestingRig;
 import co.cask.wrangler.api.Row;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -238,6 +240,31 @@ public class XMLTest {
     Assert.assertEquals("Cardigan Sweater", rows.get(0).getValue("body_catalog_product_description"));
   }
 
+  @Test
+  public void testXMLToJsonDepth() throws Exception {
+    List<Row> rows = Arrays.asList(
+      new Row("body", "<a><b><c>1</c><c>2</c></b><d id=\"7\">x</d><e/></a>")
+    );
+
+    List<Row> flattened = TestingRig.execute(new String[] { "parse-xml-to-json body" }, rows);
+    Assert.assertEquals(1, flattened.size());
+    Assert.assertEquals(4, flattened.get(0).length());
+    Assert.assertTrue(flattened.get(0).getValue("body_a_b_c") instanceof JsonArray);
+    Assert.assertEquals(7L, flattened.get(0).getValue("body_a_d_id"));
+    Assert.assertEquals("x", flattened.get(0).getValue("body_a_d_content"));
+    Assert.assertEquals("", flattened.get(0).getValue("body_a_e"));
+
+    rows = Arrays.asList(
+      new Row("body", "<a><b><c>1</c><c>2</c></b><d id=\"7\">x</d><e/></a>")
+    );
+    List<Row> limited = TestingRig.execute(new String[] { "parse-xml-to-json body 2" }, rows);
+    Assert.assertEquals(1, limited.size());
+    Assert.assertEquals(3, limited.get(0).length());
+    Assert.assertTrue(limited.get(0).getValue("body_a_b") instanceof JsonObject);
+    Assert.assertTrue(limited.get(0).getValue("body_a_d") instanceof JsonObject);
+    Assert.assertEquals("", limited.get(0).getValue("body_a_e"));
+  }
+
   @Test
   public void testBasicXMLParser() throws Exception {
     String[] directives = new String[] {
@@ -18,13 +18,32 @@ package co.cask.wrangler.executor;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.directives.aggregates.DefaultTransientStore;
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.DirectiveContext;
+import co.cask.wrangler.api.DirectiveLoadException;
+import co.cask.wrangler.api.DirectiveNotFoundException;
+import co.cask.wrangler.api.DirectiveParseException;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeIterator;
 import co.cask.wrangler.api.RecipePipeline;
+import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Tests {@link RecipePipelineExecutor}.
@@ -96,4 +115,453 @@ public class RecipePipelineExecutorTest {
     Assert.assertEquals(1481666448L, record.get("timestamp"));
     Assert.assertEquals(186.66f, record.get("weight"));
   }
+
+  @Test
+  public void testBatchExecution() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "set-column total qty * price",
+      "send-to-error total > 100",
+      "filter-row-if-true name == 'skip'"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row("body", "name,qty,price"));
+    for (int i = 0; i < 25; ++i) {
+      rows.add(new Row("body", String.format("n%d,%d,10", i, i)));
+    }
+    rows.add(new Row("body", "skip,1,1"));
+
+    RecipeParser parser = TestingRig.parse(commands);
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor(7);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+
+    // Header and filtered row are dropped, rows with total > 100 are sent to error.
+    Assert.assertEquals(11, results.size());
+    Assert.assertEquals(14, pipeline.errors().size());
+    for (int i = 0; i < results.size(); ++i) {
+      Assert.assertEquals("n" + i, results.get(i).getValue("name"));
+    }
+  }
+
+  @Test
+  public void testErrorInChunkHoldingHeader() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "set-column total qty * price",
+      "send-to-error total > 100"
+    };
+    String[] lines = new String[] { "name,qty,price", "a,1,10", "b,20,10", "c,2,10", "d,3,10" };
+
+    List<Row> rows = new ArrayList<>();
+    for (String line : lines) {
+      rows.add(new Row("body", line));
+    }
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor(10);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> results = pipeline.execute(rows);
+
+    // The header is read once, the row sent to error doesn't cause the chunk to be read again.
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertEquals("a", results.get(0).getValue("name"));
+    Assert.assertEquals("c", results.get(1).getValue("name"));
+    Assert.assertEquals("d", results.get(2).getValue("name"));
+
+    rows = new ArrayList<>();
+    for (String line : lines) {
+      rows.add(new Row("body", line));
+    }
+    List<Row> streamed = new ArrayList<>();
+    pipeline = new RecipePipelineExecutor(10);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    RecipeIterator<Row> iterator = pipeline.execute(rows.iterator());
+    while (iterator.hasNext()) {
+      streamed.add(iterator.next());
+    }
+    Assert.assertEquals(3, streamed.size());
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertEquals("a", streamed.get(0).getValue("name"));
+  }
+
+  @Test
+  public void testIncrementWithErrorRow() throws Exception {
+    String[] commands = new String[] {
+      "increment-variable count 1 true",
+      "send-to-error body == 'e'"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    for (String line : new String[] { "a", "b", "e", "c" }) {
+      rows.add(new Row("body", line));
+    }
+    TestContext context = new TestContext();
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor(10);
+    pipeline.initialize(TestingRig.parse(commands), context);
+    List<Row> results = pipeline.execute(rows);
+
+    // Each row is counted once, including the row sent to error.
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertEquals(4L, context.getTransientStore().get("count"));
+  }
+
+  @Test
+  public void testErrorRowReplaysOnlyFailingDirective() throws Exception {
+    String[] commands = new String[] {
+      "send-to-error body == 'e'",
+      "uppercase body"
+    };
+
+    final CountingDirective counter = new CountingDirective();
+    final RecipeParser parser = TestingRig.parse(commands);
+    RecipeParser counted = new RecipeParser() {
+      @Override
+      public List<Executor> parse()
+        throws DirectiveLoadException, DirectiveNotFoundException, DirectiveParseException {
+        List<Executor> directives = new ArrayList<>();
+        directives.add(counter);
+        directives.addAll(parser.parse());
+        return directives;
+      }
+
+      @Override
+      public void initialize(DirectiveContext context) {
+        parser.initialize(context);
+      }
+    };
+
+    List<Row> rows = new ArrayList<>();
+    for (String line : new String[] { "a", "b", "e", "c" }) {
+      rows.add(new Row("body", line));
+    }
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor(10);
+    pipeline.initialize(counted, null);
+    List<Row> results = pipeline.execute(rows);
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals("A", results.get(0).getValue("body"));
+    Assert.assertEquals("C", results.get(2).getValue("body"));
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertEquals("e", pipeline.errors().get(0).getRow().getValue("body"));
+    // The directive before the one rejecting the row sees the chunk only once.
+    Assert.assertEquals(1, counter.invocations);
+    Assert.assertEquals(4, counter.rows);
+  }
+
+  @Test
+  public void testBatchMatchesRowAtATime() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "set columns a,b,c",
+      "split-to-rows c ;",
+      "send-to-error a == 'e'",
+      "uppercase b"
+    };
+
+    List<Row> batch = new ArrayList<>();
+    List<Row> single = new ArrayList<>();
+    for (String line : new String[] { "a,x,1;2", "e,y,3", "b,z,4;5;6", "c,w,7" }) {
+      batch.add(new Row("body", line));
+      single.add(new Row("body", line));
+    }
+
+    RecipePipelineExecutor batchPipeline = new RecipePipelineExecutor(3);
+    batchPipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> batchResults = batchPipeline.execute(batch);
+
+    RecipePipelineExecutor singlePipeline = new RecipePipelineExecutor();
+    singlePipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> singleResults = singlePipeline.execute(single);
+
+    Assert.assertEquals(singleResults.size(), batchResults.size());
+    Assert.assertEquals(singlePipeline.errors().size(), batchPipeline.errors().size());
+    for (int i = 0; i < singleResults.size(); ++i) {
+      Row expected = singleResults.get(i);
+      Row actual = batchResults.get(i);
+      Assert.assertEquals(expected.length(), actual.length());
+      for (int j = 0; j < expected.length(); ++j) {
+        Assert.assertEquals(expected.getColumn(j), actual.getColumn(j));
+        Assert.assertEquals(expected.getValue(j), actual.getValue(j));
+      }
+    }
+  }
+
+  @Test
+  public void testStreamingMatchesListExecution() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "set columns a,b,c",
+      "split-to-rows c ;",
+      "send-to-error a == 'e'",
+      "split-to-rows b :",
+      "uppercase b"
+    };
+
+    List<Row> list = new ArrayList<>();
+    List<Row> stream = new ArrayList<>();
+    for (String line : new String[] { "a,x:y,1;2", "e,y,3", "b,z,4;5;6", "c,w:v:u,7" }) {
+      list.add(new Row("body", line));
+      stream.add(new Row("body", line));
+    }
+
+    RecipePipelineExecutor listPipeline = new RecipePipelineExecutor();
+    listPipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> listResults = listPipeline.execute(list);
+
+    RecipePipelineExecutor streamPipeline = new RecipePipelineExecutor();
+    streamPipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> streamResults = new ArrayList<>();
+    RecipeIterator<Row> iterator = streamPipeline.execute(stream.iterator());
+    while (iterator.hasNext()) {
+      streamResults.add(iterator.next());
+    }
+
+    Assert.assertEquals(10, listResults.size());
+    Assert.assertEquals(listResults.size(), streamResults.size());
+    Assert.assertEquals(1, streamPipeline.errors().size());
+    Assert.assertEquals(listPipeline.errors().size(), streamPipeline.errors().size());
+    for (int i = 0; i < listResults.size(); ++i) {
+      Row expected = listResults.get(i);
+      Row actual = streamResults.get(i);
+      Assert.assertEquals(expected.length(), actual.length());
+      for (int j = 0; j < expected.length(); ++j) {
+        Assert.assertEquals(expected.getColumn(j), actual.getColumn(j));
+        Assert.assertEquals(expected.getValue(j), actual.getValue(j));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchedStreaming() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "set columns a,b,c",
+      "split-to-rows c ;",
+      "send-to-error c == '5'",
+      "uppercase a"
+    };
+    String[] lines = new String[] { "a,x,1;2", "e,y,3", "b,z,4;5;6", "c,w,7" };
+
+    // Rows split from the same input are passed to the directives following the split in chunks,
+    // the chunk holding the row sent to error being replayed one row at a time.
+    List<Row> expected = stream(new RecipePipelineExecutor(), commands, lines);
+    List<Row> actual = stream(new RecipePipelineExecutor(2), commands, lines);
+    Assert.assertEquals(6, expected.size());
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      Assert.assertEquals(expected.get(i).getValue("a"), actual.get(i).getValue("a"));
+      Assert.assertEquals(expected.get(i).getValue("c"), actual.get(i).getValue("c"));
+    }
+  }
+
+  private static List<Row> stream(RecipePipelineExecutor pipeline, String[] commands, String[] lines)
+    throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (String line : lines) {
+      rows.add(new Row("body", line));
+    }
+    pipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> results = new ArrayList<>();
+    RecipeIterator<Row> iterator = pipeline.execute(rows.iterator());
+    while (iterator.hasNext()) {
+      results.add(iterator.next());
+    }
+    Assert.assertEquals(1, pipeline.errors().size());
+    return results;
+  }
+
+  @Test
+  public void testStreamingPullsRowsLazily() throws Exception {
+    String[] commands = new String[] {
+      "split-to-rows body ,",
+      "uppercase body"
+    };
+
+    StringBuilder sb = new StringBuilder("a");
+    for (int i = 0; i < 10000; ++i) {
+      sb.append(",a");
+    }
+    final List<Row> rows = Arrays.asList(new Row("body", sb.toString()), new Row("body", "b"));
+    final int[] pulled = new int[1];
+    Iterator<Row> input = new Iterator<Row>() {
+      @Override
+      public boolean hasNext() {
+        return pulled[0] < rows.size();
+      }
+
+      @Override
+      public Row next() {
+        return rows.get(pulled[0]++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor();
+    pipeline.initialize(TestingRig.parse(commands), null);
+    RecipeIterator<Row> iterator = pipeline.execute(input);
+    Assert.assertTrue(iterator.hasNext());
+    Assert.assertEquals("A", iterator.next().getValue("body"));
+    Assert.assertEquals("A", iterator.next().getValue("body"));
+    Assert.assertEquals(1, pulled[0]);
+
+    int count = 2;
+    Row last = null;
+    while (iterator.hasNext()) {
+      last = iterator.next();
+      count++;
+    }
+    Assert.assertEquals(10002, count);
+    Assert.assertEquals("B", last.getValue("body"));
+    Assert.assertEquals(2, pulled[0]);
+  }
+
+  @Test
+  public void testParallelMatchesSequential() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "set columns a,b,c",
+      "split-to-rows c ;",
+      "send-to-error a == 'e'",
+      "hash b MD5 true",
+      "uppercase a"
+    };
+
+    List<Row> parallel = new ArrayList<>();
+    List<Row> sequential = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      String line = String.format("%s,%d,%d;%d", i % 7 == 0 ? "e" : "a" + i, i, i, i + 1);
+      parallel.add(new Row("body", line));
+      sequential.add(new Row("body", line));
+    }
+
+    RecipePipelineExecutor parallelPipeline = new RecipePipelineExecutor(100, 4);
+    parallelPipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> parallelResults = parallelPipeline.execute(parallel);
+    List<ErrorRecord> parallelErrors = parallelPipeline.errors();
+
+    RecipePipelineExecutor sequentialPipeline = new RecipePipelineExecutor(100);
+    sequentialPipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> sequentialResults = sequentialPipeline.execute(sequential);
+    List<ErrorRecord> sequentialErrors = sequentialPipeline.errors();
+
+    Assert.assertEquals(sequentialResults.size(), parallelResults.size());
+    for (int i = 0; i < sequentialResults.size(); ++i) {
+      Row expected = sequentialResults.get(i);
+      Row actual = parallelResults.get(i);
+      Assert.assertEquals(expected.length(), actual.length());
+      for (int j = 0; j < expected.length(); ++j) {
+        Assert.assertEquals(expected.getColumn(j), actual.getColumn(j));
+        Assert.assertEquals(expected.getValue(j), actual.getValue(j));
+      }
+    }
+
+    Assert.assertEquals(715, parallelErrors.size());
+    Assert.assertEquals(sequentialErrors.size(), parallelErrors.size());
+    for (int i = 0; i < sequentialErrors.size(); ++i) {
+      Assert.assertEquals(sequentialErrors.get(i).getRow().getValue("b"),
+                          parallelErrors.get(i).getRow().getValue("b"));
+    }
+    parallelPipeline.destroy();
+  }
+
+  @Test
+  public void testSequentialDirectivesAreNotParallelized() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row("body", "first,second"));
+    for (int i = 0; i < 1000; ++i) {
+      rows.add(new Row("body", String.format("%d,%d", i, i * 2)));
+    }
+
+    RecipePipelineExecutor pipeline = new RecipePipelineExecutor(10, 4);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> results = pipeline.execute(rows);
+    Assert.assertEquals(1000, results.size());
+    for (int i = 0; i < results.size(); ++i) {
+      Assert.assertEquals(String.valueOf(i), results.get(i).getValue("first"));
+      Assert.assertEquals(String.valueOf(i * 2), results.get(i).getValue("second"));
+    }
+    pipeline.destroy();
+  }
+
+  /**
+   * Directive passing the rows through as is, counting its invocations and the rows passed to it.
+   */
+  private static final class CountingDirective implements Executor<List<Row>, List<Row>> {
+    private int invocations;
+    private int rows;
+
+    @Override
+    public void initialize(Arguments args) {
+    }
+
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context) {
+      invocations++;
+      this.rows += rows.size();
+      return rows;
+    }
+
+    @Override
+    public void destroy() {
+    }
+  }
+
+  /**
+   * Context holding a transient store shared by all the rows.
+   */
+  private static final class TestContext implements ExecutorContext {
+    private final TransientStore store = new DefaultTransientStore();
+
+    @Override
+    public Environment getEnvironment() {
+      return Environment.TRANSFORM;
+    }
+
+    @Override
+    public StageMetrics getMetrics() {
+      return null;
+    }
+
+    @Override
+    public String getContextName() {
+      return null;
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public URL getService(String applicationId, String serviceId) {
+      return null;
+    }
+
+    @Override
+    public TransientStore getTransientStore() {
+      return store;
+    }
+
+    @Override
+    public <T> Lookup<T> provide(String s, Map<String, String> map) {
+      return null;
+    }
+  }
 }
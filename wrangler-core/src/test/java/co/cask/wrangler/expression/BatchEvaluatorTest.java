@@ -0,0 +1,184 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+
+package co.cask.wrangler.expression;
+
+import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
+import co.cask.wrangler.api.Row;
+import org.apache.commons.jexl3.JexlScript;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link BatchEvaluator}, checking that expressions evaluated over batches of rows evaluate
+ * to the same values as the expressions evaluated by JEXL row by row.
+ */
+public class BatchEvaluatorTest {
+
+  private static List<Row> rows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      Row row = new Row("price", i * 1.5).add("qty", i % 4).add("total", (long) i * 100);
+      switch (i % 5) {
+        case 0:
+          row.add("discount", 0.0);
+          break;
+        case 1:
+          row.add("discount", null);
+          break;
+        case 2:
+          row.add("discount", 3);
+          break;
+        case 3:
+          row.add("discount", Double.NaN);
+          break;
+        default:
+          row.add("discount", 2.5);
+          break;
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  public void testVectorizedExpressions() throws Exception {
+    String[] expressions = new String[] {
+      "price * qty",
+      "price * qty + 1.5",
+      "-price + total",
+      "price / (qty + 0.5)",
+      "price % (qty + 1.5)",
+      "qty * 2.5 - total / 3",
+      "qty * 2",
+      "price",
+      "qty",
+      "price * qty > 10",
+      "price * qty >= 10.5 && qty != 0",
+      "price < 3 || !(qty == 2)",
+      "discount == 0.0",
+      "qty > 1 ? price : total",
+      "qty > 1 ? price > 3.0 : true"
+    };
+    List<Row> rows = rows(50);
+    for (String expression : expressions) {
+      JexlScript script = JexlHelper.compile(expression);
+      BatchEvaluator batch = BatchEvaluator.of(ScriptEvaluator.compiled(expression, script));
+      Assert.assertNotNull(expression, batch);
+      Object[] results = batch.evaluate(rows, new RowContext(JexlHelper.getVariables(script)), null);
+      Assert.assertEquals(expression, rows.size(), results.length);
+      for (int i = 0; i < rows.size(); ++i) {
+        Object expected = script.execute(new RowContext(null).reset(rows.get(i)));
+        Assert.assertEquals(expression + " at " + i, expected, results[i]);
+        if (expected != null) {
+          Assert.assertEquals(expression + " at " + i, expected.getClass(), results[i].getClass());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testColumnsResolvedAsRowContext() throws Exception {
+    // Columns are matched by their exact name, the last of the columns sharing a name winning,
+    // both for narrow rows and for rows wide enough to be looked up through the column index.
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 20; ++i) {
+      Row row = new Row("Price", 1000.0).add("price", i * 1.5).add("qty", 1000).add("qty", i % 4);
+      if (i % 2 == 0) {
+        for (int j = 0; j < 8; ++j) {
+          row.add("col" + j, j);
+        }
+      }
+      if (i % 3 == 0) {
+        row.add("PRICE", 2000.0);
+      }
+      rows.add(row);
+    }
+
+    String expression = "price * qty + 1.5";
+    JexlScript script = JexlHelper.compile(expression);
+    BatchEvaluator batch = BatchEvaluator.of(ScriptEvaluator.compiled(expression, script));
+    Assert.assertNotNull(batch);
+    Object[] results = batch.evaluate(rows, new RowContext(JexlHelper.getVariables(script)), null);
+    for (int i = 0; i < rows.size(); ++i) {
+      Object expected = script.execute(new RowContext(null).reset(rows.get(i)));
+      Assert.assertEquals(i * 1.5 * (i % 4) + 1.5, expected);
+      Assert.assertEquals("at " + i, expected, results[i]);
+    }
+  }
+
+  @Test
+  public void testExpressionsNotVectorized() throws Exception {
+    String[] expressions = new String[] {
+      "qty > 1 ? 'big' : 'small'",
+      "string:upperCase(discount)",
+      "price > 1 && discount",
+      "this",
+      "x = price; x + 1"
+    };
+    for (String expression : expressions) {
+      BatchEvaluator batch = BatchEvaluator.of(ScriptEvaluator.compiled(expression, JexlHelper.compile(expression)));
+      Assert.assertNull(expression, batch);
+    }
+  }
+
+  /**
+   * Compares evaluating an expression over batches of rows against evaluating it row by row.
+   */
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    String expression = "price * qty > 10 && price < 100.0";
+    JexlScript script = JexlHelper.compile(expression);
+    ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, script);
+    BatchEvaluator batch = BatchEvaluator.of(evaluator);
+    RowContext context = new RowContext(JexlHelper.getVariables(script));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1024; ++i) {
+      rows.add(new Row("price", i * 0.5).add("qty", i % 7));
+    }
+    int iterations = 2000;
+    for (int round = 0; round < 3; ++round) {
+      long start = System.nanoTime();
+      int sum = 0;
+      for (int i = 0; i < iterations; ++i) {
+        for (Row row : rows) {
+          sum += (Boolean) evaluator.evaluate(context.reset(row)) ? 1 : 0;
+        }
+      }
+      long single = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; ++i) {
+        for (Object result : batch.evaluate(rows, context, null)) {
+          sum -= (Boolean) result ? 1 : 0;
+        }
+      }
+      long batched = System.nanoTime() - start;
+
+      Assert.assertEquals(0, sum);
+      long count = (long) iterations * rows.size();
+      System.out.println(String.format("row by row : %.2f ns/row, batch : %.2f ns/row",
+                                       (double) single / count, (double) batched / count));
+    }
+  }
+}
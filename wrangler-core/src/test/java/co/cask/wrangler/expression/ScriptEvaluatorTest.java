@@ -0,0 +1,200 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
+import co.cask.wrangler.api.Row;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link ScriptEvaluator}, checking that compiled expressions evaluate to the same values
+ * as the expressions evaluated by JEXL.
+ */
+public class ScriptEvaluatorTest {
+
+  private static final List<Row> ROWS = Arrays.asList(
+    new Row("a", 1).add("b", 2).add("c", 2.5).add("s", "Hello").add("t", "World").add("n", null),
+    new Row("a", 2147483647).add("b", -3).add("c", 0.25).add("s", "").add("t", "x").add("n", null),
+    new Row("a", 10L).add("b", 4).add("c", -1.0).add("s", "10").add("t", "y").add("n", null)
+  );
+
+  @Test
+  public void testCompiledExpressions() throws Exception {
+    String[] expressions = new String[] {
+      "a + b",
+      "a - b * 2",
+      "(a - b) * 2",
+      "a / b",
+      "a % b",
+      "-a + c",
+      "c * 2.5",
+      "a + 2147483647",
+      "s + t",
+      "s + a",
+      "a > b && b < 3",
+      "a >= 1 || c <= 0",
+      "!(a == b)",
+      "a != 1",
+      "s == 'Hello'",
+      "n == null",
+      "a > 1 ? 'big' : \"small\"",
+      "a > 1 ? b > 0 ? 'positive' : 'negative' : 'small'",
+      "s.length()",
+      "t.substring(0, 1) + s.toUpperCase()",
+      "math:abs(b)",
+      "string:upperCase(s)",
+      "true && !false"
+    };
+    for (String expression : expressions) {
+      ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+      Assert.assertTrue(expression, evaluator.isCompiled());
+      assertEquivalent(expression, evaluator);
+    }
+  }
+
+  @Test
+  public void testNullConditions() throws Exception {
+    // A null condition selects the second operand, as it does for JEXL.
+    String[] expressions = new String[] {
+      "n ? 'yes' : 'no'",
+      "n ? a : b + 1",
+      "string:upperCase(s) + (n ? '*' : '')"
+    };
+    for (String expression : expressions) {
+      ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+      Assert.assertTrue(expression, evaluator.isCompiled());
+      assertEquivalent(expression, evaluator);
+    }
+    String expression = "string:upperCase(s) + (n ? '*' : '')";
+    ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+    Assert.assertEquals("HELLO", evaluator.evaluate(new RowContext(null).reset(ROWS.get(0))));
+  }
+
+  @Test
+  public void testExpressionsNotCompiled() throws Exception {
+    String[] expressions = new String[] {
+      "x = a; x + 1",
+      "a =~ '[0-9]+'",
+      "empty(s)",
+      "'a\\'b'",
+      "0x10 + a",
+      "10L + a",
+      "a & b"
+    };
+    for (String expression : expressions) {
+      ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+      Assert.assertFalse(expression, evaluator.isCompiled());
+      assertEquivalent(expression, evaluator);
+    }
+  }
+
+  @Test
+  public void testFailuresAreReportedByJexl() throws Exception {
+    String[] expressions = new String[] {
+      "a + undefined",
+      "a / 0"
+    };
+    for (String expression : expressions) {
+      ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+      Assert.assertTrue(expression, evaluator.isCompiled());
+      try {
+        evaluator.evaluate(new RowContext(null).reset(ROWS.get(0)));
+        Assert.fail(expression);
+      } catch (JexlException e) {
+        // expected, as reported by JEXL.
+      }
+    }
+  }
+
+  @Test
+  public void testNoFallbackOnceMethodsAreCalled() throws Exception {
+    String expression = "this.add('x', 1).length() + undefined";
+    ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, JexlHelper.compile(expression));
+    Assert.assertTrue(evaluator.isCompiled());
+    Row row = new Row("a", 1);
+    try {
+      evaluator.evaluate(new RowContext(null).reset(row));
+      Assert.fail(expression);
+    } catch (JexlException e) {
+      // expected, the column being added once only.
+    }
+    Assert.assertEquals(2, row.length());
+  }
+
+  @Test
+  public void testCompilationIsDisabledByDefault() throws Exception {
+    String expression = "a + b";
+    Assert.assertFalse(ScriptEvaluator.of(expression, JexlHelper.compile(expression), null).isCompiled());
+  }
+
+  private static void assertEquivalent(String expression, ScriptEvaluator evaluator) {
+    JexlScript script = JexlHelper.compile(expression);
+    for (Row row : ROWS) {
+      Object expected = script.execute(new RowContext(null).reset(row));
+      Object actual = evaluator.evaluate(new RowContext(null).reset(row));
+      Assert.assertEquals(expression, expected, actual);
+      if (expected != null) {
+        Assert.assertEquals(expression, expected.getClass(), actual.getClass());
+      }
+    }
+  }
+
+  /**
+   * Compares evaluating expressions through their compiled form against evaluating them by JEXL.
+   */
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    String[] expressions = new String[] {
+      "a + b * 2",
+      "a > 1 && s == 'Hello' || c < 0",
+      "a > 1 ? string:upperCase(s) : s + t"
+    };
+    int iterations = 2000000;
+    for (String expression : expressions) {
+      JexlScript script = JexlHelper.compile(expression);
+      ScriptEvaluator evaluator = ScriptEvaluator.compiled(expression, script);
+      RowContext context = new RowContext(JexlHelper.getVariables(script));
+      for (int round = 0; round < 3; ++round) {
+        long start = System.nanoTime();
+        int sum = 0;
+        for (int i = 0; i < iterations; ++i) {
+          sum += script.execute(context.reset(ROWS.get(i % ROWS.size()))) == null ? 0 : 1;
+        }
+        long interpreted = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+          sum -= evaluator.evaluate(context.reset(ROWS.get(i % ROWS.size()))) == null ? 0 : 1;
+        }
+        long compiled = System.nanoTime() - start;
+
+        Assert.assertEquals(0, sum);
+        System.out.println(String.format("%-40s JEXL : %.2f ns/eval, compiled : %.2f ns/eval", expression,
+                                         (double) interpreted / iterations, (double) compiled / iterations));
+      }
+    }
+  }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.optimizer;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.directives.row.SendToError;
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.Row;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests {@link RecipeOptimizer}, checking that the optimized recipes produce the same rows as the
+ * recipes they are optimized from.
+ */
+public class RecipeOptimizerTest {
+
+  @Test
+  public void testCsvFixture() throws Exception {
+    String[] recipe = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_1 date",
+      "parse-as-csv date / false",
+      "rename date_1 month",
+      "rename date_2 day",
+      "rename date_3 year"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "07/29/2013,Debt collection,\"Other (i.e. phone, health club, etc.)\",Cont'd attempts collect " +
+        "debt not owed,Debt is not mine,,,\"NRA Group, LLC\",VA,20147,,N/A,Web,08/07/2013,Closed with non-monetary " +
+        "relief,Yes,No,467801"),
+      new Row("body", "07/29/2013,Mortgage,Conventional fixed mortgage,\"Loan servicing, payments, escrow account\",," +
+        ",,Franklin Credit Management,CT,06106,,N/A,Web,07/30/2013,Closed with explanation,Yes,No,475823")
+    );
+
+    Assert.assertEquals(2, fused(recipe));
+    assertEquivalent(recipe, rows);
+  }
+
+  @Test
+  public void testJsonFixture() throws Exception {
+    String[] recipe = new String[] {
+      "parse-as-json body",
+      "parse-as-csv  body_deviceReference_screenSize | false",
+      "drop body_deviceReference_screenSize",
+      "rename body_deviceReference_screenSize_1 size1",
+      "rename body_deviceReference_screenSize_2 size2",
+      "rename body_deviceReference_screenSize_3 size3",
+      "rename body_deviceReference_screenSize_4 size4",
+      "json-path body_deviceReference_alerts signal_lost $.[*].['Signal lost']",
+      "json-path signal_lost signal_lost $.[0]",
+      "drop body",
+      "rename body_deviceReference_timestamp timestamp",
+      "set column timestamp timestamp",
+      "drop body_deviceReference_alerts"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{ \"deviceReference\": { \"brand\": \"Samsung \", \"type\": \"Gear S3 frontier\", " +
+        "\"deviceId\": \"SM-R760NDAAXAR\", \"timestamp\": 122121212341231, \"OS\": { \"name\": \"Tizen OS\", " +
+        "\"version\": \"2.3.1\" }, \"alerts\": [ { \"Signal lost\": true }, { \"Emergency call\": true }, " +
+        "{ \"Wifi connection lost\": true }, { \"Battery low\": true }, { \"Calories\": 354 } ], \"screenSize\": " +
+        "\"extra-small|small|medium|large\", \"battery\": \"22%\", \"telephoneNumber\": \"+14099594986\", \"comments\": " +
+        "\"It is an AT&T samung wearable device.\" } }")
+    );
+
+    Assert.assertEquals(2, fused(recipe));
+    assertEquivalent(recipe, rows);
+  }
+
+  @Test
+  public void testRowsWithDifferentColumns() throws Exception {
+    String[] recipe = new String[] {
+      "parse-as-json body",
+      "parse-as-json body",
+      "drop body_b",
+      "rename body_a a",
+      "swap a body_c",
+      "set-headers x,y",
+      "keep x,y,body_d"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "[ { \"a\" : 1, \"b\" : 2, \"c\" : 6 }, { \"a\" : 3, \"b\" : 3, \"c\" : 7 }, " +
+        "{ \"a\" : 4, \"c\" : 5, \"d\" : 8 }, { \"c\" : 9, \"a\" : 10 } ]")
+    );
+
+    Assert.assertEquals(1, fused(recipe));
+    assertEquivalent(recipe, rows);
+  }
+
+  @Test
+  public void testKeepFixture() throws Exception {
+    String[] recipe = new String[] {
+      "parse-as-csv body ,",
+      "keep body_1,body_2",
+      "rename body_1 first"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "1,2,3,4,5,6,7,8,9,10")
+    );
+
+    Assert.assertEquals(1, fused(recipe));
+    assertEquivalent(recipe, rows);
+  }
+
+  @Test
+  public void testSwapFixtures() throws Exception {
+    String[] recipe = new String[] {
+      "swap a b",
+      "drop c"
+    };
+
+    assertEquivalent(recipe, Arrays.asList(new Row("a", 1).add("b", "sample string").add("c", 2)));
+    // The column to be swapped is missing in the second row.
+    assertEquivalent(recipe, Arrays.asList(new Row("a", 1).add("b", "sample string"),
+                                           new Row("a", 1).add("c", "sample string")));
+  }
+
+  @Test
+  public void testRenameFixture() throws Exception {
+    String[] recipe = new String[] {
+      "rename C2 C4",
+      "drop C1"
+    };
+
+    assertEquivalent(recipe, Arrays.asList(
+      new Row("C1", "A").add("C2", "B").add("C3", "C").add("C5", "E"),
+      new Row("C1", "A").add("C2", "B").add("C3", "C").add("C4", "D").add("C5", "E")
+    ));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFusedProjectionLeavesValuesUnread() throws Exception {
+    String[] recipe = new String[] {
+      "drop a",
+      "rename b x"
+    };
+
+    Schema schema = Schema.recordOf("input",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    Row row = new Row(StructuredRecord.builder(schema).set("a", 1).set("b", "y").set("c", "z").build());
+
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(1, optimized.size());
+    Assert.assertTrue(optimized.get(0) instanceof FusedProjection);
+    List<Row> rows = ((Executor<List<Row>, List<Row>>) optimized.get(0)).execute(Arrays.asList(row), null);
+
+    Row result = rows.get(0);
+    Assert.assertEquals(2, result.length());
+    Assert.assertFalse(result.isRead(0));
+    Assert.assertFalse(result.isRead(1));
+    Assert.assertEquals("y", result.getValue("x"));
+    Assert.assertEquals("z", result.getValue("c"));
+  }
+
+  @Test
+  public void testSingleProjectionIsNotFused() throws Exception {
+    String[] recipe = new String[] {
+      "drop a",
+      "uppercase b",
+      "rename b c"
+    };
+
+    Assert.assertEquals(0, fused(recipe));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "y")));
+  }
+
+  @Test
+  public void testDroppedColumnsAreEliminated() throws Exception {
+    String[] recipe = new String[] {
+      "uppercase a",
+      "mask-number b ##xx",
+      "lowercase b",
+      "set-column c a + '-'",
+      "copy a d",
+      "trim d",
+      "drop b,d"
+    };
+
+    // Lowercasing 'b' and trimming 'd' are skipped as both the columns are dropped, masking 'b'
+    // and copying into 'd' are not as they can fail.
+    Assert.assertEquals(5, optimized(new RecipeOptimizer(), recipe));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "1234")));
+    // Copying fails as 'd' is already present.
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "y").add("b", "5678").add("d", "z")));
+  }
+
+  @Test
+  public void testEliminationCanBeTurnedOff() throws Exception {
+    String[] recipe = new String[] {
+      "uppercase a",
+      "lowercase b",
+      "drop b"
+    };
+
+    Assert.assertEquals(2, optimized(new RecipeOptimizer(), recipe));
+    Assert.assertEquals(3, optimized(new RecipeOptimizer(null, false), recipe));
+    Assert.assertEquals(3, optimized(new RecipeOptimizer(Arrays.asList("a"), false), recipe));
+  }
+
+  @Test
+  public void testRenamedColumnsAreTracked() throws Exception {
+    String[] rename = new String[] {
+      "uppercase a",
+      "rename a b",
+      "drop a"
+    };
+    Assert.assertEquals(3, optimized(new RecipeOptimizer(), rename));
+    assertEquivalent(rename, Arrays.asList(new Row("a", "x")));
+
+    String[] swap = new String[] {
+      "uppercase a",
+      "swap a b",
+      "drop b"
+    };
+    // Swapping fails unless both the columns are present, so both are used by it.
+    Assert.assertEquals(3, optimized(new RecipeOptimizer(), swap));
+    assertEquivalent(swap, Arrays.asList(new Row("a", "x").add("b", "y")));
+  }
+
+  @Test
+  public void testRenameTargetIsUsed() throws Exception {
+    String[] recipe = new String[] {
+      "fill-null-or-empty b x",
+      "rename a b",
+      "drop b"
+    };
+
+    // Renaming fails once 'b' is added, so adding it is not skipped.
+    Assert.assertEquals(3, optimized(new RecipeOptimizer(), recipe));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", 1)));
+    assertEquivalent(recipe, Arrays.asList(new Row("c", 1)));
+  }
+
+  @Test
+  public void testMergeIntoExistingColumnIsKept() throws Exception {
+    String[] recipe = new String[] {
+      "merge a b c ','",
+      "drop c"
+    };
+
+    // Merging adds a second 'c', which is the one left once the first 'c' is dropped.
+    RecipeOptimizer optimizer = new RecipeOptimizer(Arrays.asList("a", "b", "c"));
+    Assert.assertEquals(2, optimized(optimizer, recipe));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "y").add("c", "z")));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "y")));
+  }
+
+  @Test
+  public void testOutputColumnsEliminateDirectives() throws Exception {
+    RecipeOptimizer optimizer = new RecipeOptimizer(Arrays.asList("X", "c", "d"));
+    Assert.assertEquals(3, optimized(optimizer, new String[] {
+      "uppercase a",
+      "lowercase b",
+      "titlecase c",
+      "rename a x"
+    }));
+    Assert.assertEquals(1, optimized(optimizer, new String[] {
+      "lowercase b",
+      "set-column d a"
+    }));
+    // Expressions using 'this' can read any of the columns.
+    Assert.assertEquals(2, optimized(optimizer, new String[] {
+      "lowercase b",
+      "set-column d this.length()"
+    }));
+  }
+
+  @Test
+  public void testFiltersAreHoisted() throws Exception {
+    String[] recipe = new String[] {
+      "lowercase b",
+      "uppercase a",
+      "trim c",
+      "filter-row-if-true b == 'y'",
+      "filter-by-regex if-matched :a 'X.*'"
+    };
+
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(5, optimized.size());
+    // The filter on 'b' only needs the column lowercased, the filter on 'a' stops at the
+    // uppercasing of 'a' as it can't move past the first filter either.
+    Assert.assertTrue(optimized.get(1) instanceof RowFilter);
+    Assert.assertTrue(optimized.get(3) instanceof RowFilter);
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "Y"),
+                                           new Row("a", "z").add("b", "y"),
+                                           new Row("a", "w").add("b", "W")));
+  }
+
+  @Test
+  public void testFiltersStopAtUnknownDirectives() throws Exception {
+    String[] recipe = new String[] {
+      "uppercase a",
+      "set-column c this.length()",
+      "lowercase d",
+      "filter-row-if-true b == 'y'"
+    };
+
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertTrue(optimized.get(2) instanceof RowFilter);
+  }
+
+  @Test
+  public void testFiltersStopAtDirectivesThatCanFail() throws Exception {
+    String[] recipe = new String[] {
+      "copy a c",
+      "uppercase a",
+      "filter-row-if-true b == 'y'"
+    };
+
+    // Copying fails on the rows having 'c' already, whether the filter removes them or not.
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertTrue(optimized.get(1) instanceof RowFilter);
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "y").add("c", "z")));
+    assertEquivalent(recipe, Arrays.asList(new Row("a", "x").add("b", "y"), new Row("a", "w").add("b", "n")));
+  }
+
+  @Test
+  public void testSendToErrorIsNotMoved() throws Exception {
+    String[] recipe = new String[] {
+      "lowercase a",
+      "send-to-error b == 'y'"
+    };
+
+    // Rows sent to error are the rows as they are once 'a' is lowercased.
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(2, optimized.size());
+    Assert.assertFalse(optimized.get(0) instanceof SendToError);
+    Assert.assertTrue(optimized.get(1) instanceof SendToError);
+  }
+
+  @Test
+  public void testWrittenColumns() throws Exception {
+    String[] recipe = new String[] {
+      "uppercase a",
+      "rename b c",
+      "copy d E",
+      "send-to-error f == 'y'"
+    };
+    Set<String> written = RecipeOptimizer.writtenColumns(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "e")), written);
+
+    String[] unknown = new String[] {
+      "uppercase a",
+      "set-column c this.length()"
+    };
+    Assert.assertNull(RecipeOptimizer.writtenColumns(TestingRig.parse(unknown).parse()));
+  }
+
+  @Test
+  public void testLineParsersAreFused() throws Exception {
+    String[] recipe = new String[] {
+      "split-to-rows body \\n",
+      "parse-as-csv body , true",
+      "drop body"
+    };
+
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(2, optimized.size());
+    Assert.assertTrue(optimized.get(0) instanceof ParallelLineParser);
+
+    // Large enough for the lines to be parsed in parallel, the header following an empty line.
+    StringBuilder body = new StringBuilder("\nid,name,city\n");
+    for (int i = 0; body.length() < 2 * ParallelLineParser.MIN_PARALLEL_LENGTH; ++i) {
+      body.append(i).append(",\"name, ").append(i).append("\",city").append(i % 7).append('\n');
+      if (i % 1000 == 0) {
+        body.append('\n');
+      }
+    }
+    assertEquivalent(recipe, Arrays.asList(new Row("body", body.toString() + "\n\n"),
+                                           new Row("body", "1,a,b\n2,c,d")));
+
+    // Lines failing to parse fail the same way.
+    body.append("1,\"a,b\n");
+    assertEquivalent(recipe, Arrays.asList(new Row("body", body.toString())));
+  }
+
+  @Test
+  public void testOtherSplitsAreNotFused() throws Exception {
+    String[] recipe = new String[] {
+      "split-to-rows body ;",
+      "parse-as-csv body , false"
+    };
+    for (Executor directive : new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse())) {
+      Assert.assertFalse(directive instanceof ParallelLineParser);
+    }
+  }
+
+  @Test
+  public void testExtractionsAreFused() throws Exception {
+    String[] recipe = new String[] {
+      "json-path doc fname $.name.fname",
+      "json-path doc lname $.name.lname",
+      "json-path doc first $.numbers[0]",
+      "json-path doc doc $.name",
+      "json-path doc fname $.fname",
+      "json-path other first $.a"
+    };
+
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+    Assert.assertEquals(3, optimized.size());
+    Assert.assertTrue(optimized.get(0) instanceof FusedExtraction);
+    Assert.assertEquals(4, ((FusedExtraction) optimized.get(0)).getExtractors().size());
+
+    JsonParser parser = new JsonParser();
+    List<Row> rows = Arrays.asList(
+      new Row("doc", parser.parse("{ \"name\" : { \"fname\" : \"a\", \"lname\" : \"b\" }, \"numbers\" : [1, 2] }"))
+        .add("other", parser.parse("{ \"a\" : 1.5 }")),
+      new Row("doc", null).add("other", parser.parse("{ \"a\" : 2 }")),
+      new Row("doc", parser.parse("{ \"name\" : { \"fname\" : \"c\", \"lname\" : null }, \"numbers\" : [3] }"))
+        .add("other", parser.parse("{ \"a\" : \"x\" }"))
+    );
+    assertEquivalent(recipe, rows);
+
+    // Values that are not documents fail the same way.
+    assertEquivalent(recipe, Arrays.asList(rows.get(0), new Row("doc", 1).add("other", rows.get(0).getValue(1))));
+  }
+
+  /**
+   * @return number of directives in the recipe optimized by the given optimizer.
+   */
+  private static int optimized(RecipeOptimizer optimizer, String[] recipe) throws Exception {
+    return optimizer.optimize(TestingRig.parse(recipe).parse()).size();
+  }
+
+  /**
+   * @return number of {@link FusedProjection} in the optimized recipe.
+   */
+  private static int fused(String[] recipe) throws Exception {
+    int count = 0;
+    for (Executor directive : new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse())) {
+      if (directive instanceof FusedProjection) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void assertEquivalent(String[] recipe, List<Row> rows) throws Exception {
+    List<Executor> directives = TestingRig.parse(recipe).parse();
+    List<Executor> optimized = new RecipeOptimizer().optimize(TestingRig.parse(recipe).parse());
+
+    List<Row> expected = null;
+    String expectedError = null;
+    try {
+      expected = execute(directives, rows);
+    } catch (DirectiveExecutionException e) {
+      expectedError = e.getMessage();
+    }
+
+    List<Row> actual = null;
+    String actualError = null;
+    try {
+      actual = execute(optimized, rows);
+    } catch (DirectiveExecutionException e) {
+      actualError = e.getMessage();
+    }
+
+    if (expectedError != null || actualError != null) {
+      Assert.assertNotNull(expectedError);
+      Assert.assertNotNull(actualError);
+      // Messages name the directive failing, which is a different instance in each recipe.
+      Assert.assertEquals(expectedError.replaceAll("@[0-9a-f]+", ""), actualError.replaceAll("@[0-9a-f]+", ""));
+      return;
+    }
+
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      Row e = expected.get(i);
+      Row a = actual.get(i);
+      Assert.assertEquals(e.length(), a.length());
+      for (int j = 0; j < e.length(); ++j) {
+        Assert.assertEquals(e.getColumn(j), a.getColumn(j));
+        Assert.assertEquals(e.getValue(j), a.getValue(j));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Row> execute(List<Executor> directives, List<Row> input) throws Exception {
+    // Directives modify the rows, so each execution works on copies of the input.
+    List<Row> rows = new ArrayList<>(input.size());
+    for (Row row : input) {
+      rows.add(new Row(row));
+    }
+    for (Executor<List<Row>, List<Row>> directive : directives) {
+      rows = directive.execute(rows, null);
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link CsvTokenizer}.
+ */
+public class CsvTokenizerTest {
+
+  // Records of 18 columns, as in the dataset of the performance evaluation.
+  private static final String[] LINES = new String[] {
+    "07/29/2013,Debt collection,\"Other (i.e. phone, health club, etc.)\",Cont'd attempts collect " +
+      "debt not owed,Debt is not mine,,,\"NRA Group, LLC\",VA,20147,,N/A,Web,08/07/2013,Closed with non-monetary " +
+      "relief,Yes,No,467801",
+    "07/29/2013,Mortgage,Conventional fixed mortgage,\"Loan servicing, payments, escrow account\",," +
+      ",,Franklin Credit Management,CT,06106,,N/A,Web,07/30/2013,Closed with explanation,Yes,No,475823"
+  };
+
+  @Test
+  public void testRecords() throws Exception {
+    CsvTokenizer tokenizer = new CsvTokenizer(',');
+    List<String> fields = new ArrayList<>();
+    for (String line : LINES) {
+      tokenizer.reset(line);
+      Assert.assertTrue(tokenizer.next(fields));
+      Assert.assertEquals(18, fields.size());
+      Assert.assertFalse(tokenizer.next(fields));
+    }
+    tokenizer.reset(LINES[0]);
+    tokenizer.next(fields);
+    Assert.assertEquals("Other (i.e. phone, health club, etc.)", fields.get(2));
+    Assert.assertEquals("", fields.get(5));
+    Assert.assertEquals("NRA Group, LLC", fields.get(7));
+  }
+
+  @Test
+  public void testQuotesAndLineBreaks() throws Exception {
+    assertRecords("a,\"b \"\"c\"\"\",\"d\ne\"", Arrays.asList("a", "b \"c\"", "d\ne"));
+    assertRecords("a,b \"c\" d", Arrays.asList("a", "b \"c\" d"));
+    assertRecords(" a , \"b\" ", Arrays.asList(" a ", " \"b\" "));
+    assertRecords("\"a\"  ,b", Arrays.asList("a", "b"));
+    assertRecords("\"\",\"\"\"\"", Arrays.asList("", "\""));
+    assertRecords("a,b,", Arrays.asList("a", "b", ""));
+    assertRecords(",", Arrays.asList("", ""));
+    assertRecords("a,b\r\nc\rd\n\n\ne,f\n", Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("d"),
+                  Arrays.asList("e", "f"));
+    assertRecords("\n\r\n");
+  }
+
+  @Test
+  public void testDelimiter() throws Exception {
+    List<String> fields = new ArrayList<>();
+    CsvTokenizer tokenizer = new CsvTokenizer('\t').reset("a\t\"b\tc\" \t,d");
+    Assert.assertTrue(tokenizer.next(fields));
+    Assert.assertEquals(Arrays.asList("a", "b\tc", ",d"), fields);
+  }
+
+  @Test
+  public void testRange() throws Exception {
+    List<String> fields = new ArrayList<>();
+    CsvTokenizer tokenizer = new CsvTokenizer(',').reset("a,b\nc,d\ne,f", 4, 8);
+    Assert.assertTrue(tokenizer.next(fields));
+    Assert.assertEquals(Arrays.asList("c", "d"), fields);
+    Assert.assertEquals(8, tokenizer.position());
+    Assert.assertFalse(tokenizer.next(fields));
+  }
+
+  @Test
+  public void testMalformedRecords() throws Exception {
+    String[] texts = new String[] {
+      "a,\"b",
+      "a\nb,\"c\"d"
+    };
+    for (String text : texts) {
+      CsvTokenizer tokenizer = new CsvTokenizer(',').reset(text);
+      List<String> fields = new ArrayList<>();
+      try {
+        while (tokenizer.next(fields)) {
+          Assert.assertEquals(text, Arrays.asList("a"), fields);
+        }
+        Assert.fail(text);
+      } catch (IOException e) {
+        // expected.
+      }
+    }
+  }
+
+  @SafeVarargs
+  private static void assertRecords(String text, List<String>... records) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(',').reset(text);
+    List<String> fields = new ArrayList<>();
+    for (List<String> record : records) {
+      Assert.assertTrue(text, tokenizer.next(fields));
+      Assert.assertEquals(text, record, fields);
+    }
+    Assert.assertFalse(text, tokenizer.next(fields));
+  }
+
+  /**
+   * Compares the tokenizer against parsing each line with commons-csv, as parse-as-csv did.
+   */
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    CSVFormat format = CSVFormat.DEFAULT.withDelimiter(',');
+    CsvTokenizer tokenizer = new CsvTokenizer(',');
+    List<String> fields = new ArrayList<>();
+    int iterations = 1000000;
+    for (int round = 0; round < 3; ++round) {
+      long start = System.nanoTime();
+      int sum = 0;
+      for (int i = 0; i < iterations; ++i) {
+        for (CSVRecord record : CSVParser.parse(LINES[i % LINES.length], format).getRecords()) {
+          sum += record.size();
+        }
+      }
+      long commons = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; ++i) {
+        tokenizer.reset(LINES[i % LINES.length]);
+        while (tokenizer.next(fields)) {
+          sum -= fields.size();
+        }
+      }
+      long tokenized = System.nanoTime() - start;
+
+      Assert.assertEquals(0, sum);
+      System.out.println(String.format("commons-csv : %.2f ns/record, tokenizer : %.2f ns/record",
+                                       (double) commons / iterations, (double) tokenized / iterations));
+    }
+  }
+}
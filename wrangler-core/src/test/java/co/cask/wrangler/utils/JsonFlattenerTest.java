@@ -0,0 +1,110 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import co.cask.directives.parser.JsParser;
+import co.cask.wrangler.api.Row;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Tests {@link JsonFlattener}, checking that objects are flattened as {@link JsParser#flattenJson}
+ * flattens them from their tree.
+ */
+public class JsonFlattenerTest {
+
+  private static final String[] DOCUMENTS = new String[] {
+    "{}",
+    "{\"a\": 1, \"b\": 2.5, \"c\": \"x\", \"d\": true, \"e\": null, \"f\": [1, {\"g\": 2}], \"h\": 12345678901234}",
+    "{\"a\": {\"b\": {\"c\": {\"d\": 1}}, \"e\": {\"f\": 2}}, \"g\": {\"h\": {}, \"i\": [{}]}, \"j\": {\"k\": 3}}",
+    "{\"event\": {\"id\": \"e1\", \"user\": {\"name\": \"n\", \"geo\": {\"lat\": 1.5, \"lon\": -2}}, " +
+      "\"tags\": [\"t1\", \"t2\"]}, \"a_b\": 1, \"a\": {\"b\": 2}}"
+  };
+
+  @Test
+  public void testFlattenAsTree() throws Exception {
+    JsonParser parser = new JsonParser();
+    for (int depth : new int[] {0, 1, 2, 3, Integer.MAX_VALUE}) {
+      JsonFlattener flattener = new JsonFlattener("body", depth);
+      for (String document : DOCUMENTS) {
+        Row expected = new Row("id", 1);
+        JsParser.flattenJson(parser.parse(document).getAsJsonObject(), "body", 1, depth, expected);
+
+        Row actual = new Row("id", 1);
+        Assert.assertTrue(flattener.flatten(new JsonReader(new StringReader(document)), actual));
+        assertRowsEqual(document + " to depth " + depth, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testDuplicatedKeys() throws Exception {
+    String[] documents = new String[] {
+      "{\"a\": 1, \"b\": 2, \"a\": 3}",
+      "{\"a\": {\"b\": 1}, \"c\": {\"d\": 2, \"d\": 3}}"
+    };
+    for (String document : documents) {
+      Row row = new Row("id", 1);
+      Assert.assertFalse(new JsonFlattener("body", Integer.MAX_VALUE)
+                           .flatten(new JsonReader(new StringReader(document)), row));
+      Assert.assertEquals(1, row.length());
+    }
+
+    // Keys repeated in different objects are not duplicated.
+    Row row = new Row("id", 1);
+    Assert.assertTrue(new JsonFlattener("body", Integer.MAX_VALUE)
+                        .flatten(new JsonReader(new StringReader("{\"a\": {\"x\": 1}, \"b\": {\"x\": 2}}")), row));
+    Assert.assertEquals(3, row.length());
+  }
+
+  @Test
+  public void testPrunedMembersAreSkipped() throws Exception {
+    JsonFlattener flattener = new JsonFlattener("body", 2);
+    flattener.prune(new HashSet<>(Arrays.asList("body_event_user", "body_a_b", "other")));
+    Row row = new Row("id", 1);
+    Assert.assertTrue(flattener.flatten(new JsonReader(new StringReader(DOCUMENTS[3])), row));
+    Assert.assertEquals(4, row.length());
+    Assert.assertTrue(row.getValue("body_event_user") instanceof JsonObject);
+    Assert.assertEquals("body_a_b", row.getColumn(2));
+    Assert.assertEquals(1L, row.getValue(2));
+    Assert.assertEquals("body_a_b", row.getColumn(3));
+    Assert.assertEquals(2L, row.getValue(3));
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedObject() throws Exception {
+    new JsonFlattener("body", Integer.MAX_VALUE).flatten(new JsonReader(new StringReader("{\"a\": {\"b\": 1}")),
+                                                         new Row());
+  }
+
+  private static void assertRowsEqual(String message, Row expected, Row actual) {
+    Assert.assertEquals(message, expected.length(), actual.length());
+    for (int i = 0; i < expected.length(); ++i) {
+      Assert.assertEquals(message, expected.getColumn(i), actual.getColumn(i));
+      Assert.assertEquals(message, expected.getValue(i), actual.getValue(i));
+    }
+  }
+}
@@ -155,4 +155,41 @@ public class RowConvertorTest {
     Assert.assertEquals(2.0, results.get(0).get("l2d"));
     Assert.assertEquals(2.3, (Double)results.get(0).get("f2d"), 0.01);
   }
+
+  @Test
+  public void testUnionConversions() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("a", Schema.unionOf(Schema.of(Schema.Type.NULL),
+                                                                        Schema.of(Schema.Type.INT))),
+                                    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                    Schema.Field.of("c", Schema.unionOf(Schema.of(Schema.Type.INT),
+                                                                        Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+    RecordConvertor convertor = new RecordConvertor();
+    StructuredRecord record = convertor.decodeRecord(
+      new Row("a", "5").add("b", 2).add("c", "text").add("d", null), schema);
+    Assert.assertEquals(5, record.get("a"));
+    Assert.assertEquals(2L, record.get("b"));
+    Assert.assertEquals("text", record.get("c"));
+    Assert.assertNull(record.get("d"));
+
+    // Rows with columns in a different order, or missing, are converted with the same decoders.
+    record = convertor.decodeRecord(new Row("c", "7").add("a", null), schema);
+    Assert.assertNull(record.get("a"));
+    Assert.assertNull(record.get("b"));
+    Assert.assertEquals(7, record.get("c"));
+  }
+
+  @Test
+  public void testListConversion() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("a", Schema.arrayOf(Schema.of(Schema.Type.LONG))),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.INT)));
+
+    StructuredRecord record = new RecordConvertor().decodeRecord(
+      new Row("a", Arrays.asList(1, "2", 3L)).add("b", (short) 4), schema);
+    Assert.assertEquals(Arrays.asList(1L, 2L, 3L), record.get("a"));
+    Assert.assertEquals(4, record.get("b"));
+  }
 }
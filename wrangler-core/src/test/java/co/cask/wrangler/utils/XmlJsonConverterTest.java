@@ -0,0 +1,71 @@
+/*
+ *  Copyright © 2017 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Tests {@link XmlJsonConverter}, checking that documents convert as through
+ * <code>org.json.XML.toJSONObject</code>.
+ */
+public class XmlJsonConverterTest {
+
+  @Test
+  public void testElements() throws Exception {
+    assertConverts("{\"a\": {\"b\": [1, 2.5], \"c\": {\"x\": true, \"content\": \"text\"}, \"d\": \"\", \"e\": \"\"}}",
+                   "<?xml version=\"1.0\"?>\n<a>\n  <b>1</b>\n  <b>2.50</b>\n  <c x=\"true\"> text </c>\n  <d/><e></e>\n</a>");
+    assertConverts("{\"a\": {\"b\": [{\"id\": 1}, \"x\", {\"id\": 2, \"content\": \"y\"}]}}",
+                   "<a><b id=\"1\"/><b>x</b><b id=\"2\">y</b></a>");
+  }
+
+  @Test
+  public void testText() throws Exception {
+    assertConverts("{\"a\": {\"content\": [\"x\", \"y\", \" 007 \"], \"b\": \"z\"}}",
+                   "<a>x<!-- comment -->y<b>z</b><![CDATA[ 007 ]]><?pi data?></a>");
+    assertConverts("{\"a\": \"<b> & A\"}", "<a>&lt;b&gt; &amp; &#65;</a>");
+    assertConverts("{\"a\": [[\"x\", \"y\"]]}", "<a>x<!-- comment -->y</a>");
+  }
+
+  @Test
+  public void testNamespaces() throws Exception {
+    assertConverts("{\"ns:a\": {\"xmlns:ns\": \"urn:x\", \"xmlns\": \"urn:d\", \"ns:id\": \"007\", \"ns:b\": null}}",
+                   "<ns:a xmlns:ns=\"urn:x\" xmlns=\"urn:d\" ns:id=\"007\"><ns:b>null</ns:b></ns:a>");
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    String xml = "<n><i>-0</i><j>1e3</j><k>12345678901234567890</k><l>-.5</l><m>0x10</m><o>1.0</o>" +
+      "<p>FALSE</p><q>-</q><r>0.000</r></n>";
+    Assert.assertEquals("{\"n\":{\"i\":-0,\"j\":1E+3,\"k\":12345678901234567890,\"l\":-0.5,\"m\":\"0x10\"," +
+                          "\"o\":1,\"p\":false,\"q\":\"-\",\"r\":0}}",
+                        new XmlJsonConverter().convert(xml).toString());
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void testNotWellFormed() throws Exception {
+    new XmlJsonConverter().convert("<a><b></a>");
+  }
+
+  private static void assertConverts(String expected, String xml) throws Exception {
+    Assert.assertEquals(new JsonParser().parse(expected), new XmlJsonConverter().convert(xml));
+  }
+}
@@ -40,6 +40,7 @@ import co.cask.wrangler.api.DirectiveRegistry;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.GrammarMigrator;
 import co.cask.wrangler.api.Pair;
+import co.cask.wrangler.api.RecipeIterator;
 import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.TransientStore;
@@ -524,7 +525,7 @@ public class DirectivesService extends AbstractHttpServiceHandler {
           int min = Math.min(records.size(), limit);
           return records.subList(0, min);
         }
-      });
+      }, user.getWorkspace().getResults());
 
       JsonArray values = new JsonArray();
       JsonArray headers = new JsonArray();
@@ -1146,6 +1147,25 @@ public class DirectivesService extends AbstractHttpServiceHandler {
   private List<Row> executeDirectives(String id, @Nullable Request user,
                                       Function<List<Row>, List<Row>> sample)
     throws Exception {
+    return executeDirectives(id, user, sample, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Executes directives by extracting them from request, generating at most <code>max</code> records.
+   *
+   * <p>When the number of records is bounded, the records are streamed through the directives
+   * and the execution stops once enough records are generated, so that records that would be
+   * dropped are never generated.</p>
+   *
+   * @param id data to be used for executing directives.
+   * @param user request passed on http.
+   * @param sample sampling function.
+   * @param max maximum number of records to be generated.
+   * @return records generated from the directives.
+   */
+  private List<Row> executeDirectives(String id, @Nullable Request user,
+                                      Function<List<Row>, List<Row>> sample, int max)
+    throws Exception {
     if (user == null) {
       throw new Exception("Request is empty. Please check if the request is sent as HTTP POST body.");
     }
@@ -1157,15 +1177,29 @@ public class DirectivesService extends AbstractHttpServiceHandler {
     ExecutorContext context = new ServicePipelineContext(ExecutorContext.Environment.SERVICE,
                                                          getContext(),
                                                          store);
-    RecipePipelineExecutor executor = new RecipePipelineExecutor();
+    RecipePipelineExecutor executor = new RecipePipelineExecutor(RecipePipelineExecutor.DEFAULT_BATCH_SIZE,
+                                                                 Runtime.getRuntime().availableProcessors());
     if (user.getRecipe().getDirectives().size() > 0) {
       GrammarMigrator migrator = new MigrateToV2(user.getRecipe().getDirectives());
       String migrate = migrator.migrate();
       RecipeParser recipe = new GrammarBasedParser(migrate, composite);
       recipe.initialize(new ConfigDirectiveContext(table.getConfigString()));
-      executor.initialize(recipe, context);
-      rows = executor.execute(sample.apply(rows));
-      executor.destroy();
+      try {
+        executor.initialize(recipe, context);
+        if (max == Integer.MAX_VALUE) {
+          rows = executor.execute(sample.apply(rows));
+        } else {
+          RecipeIterator<Row> iterator = executor.execute(sample.apply(rows).iterator());
+          List<Row> results = new ArrayList<>();
+          while (results.size() < max && iterator.hasNext()) {
+            results.add(iterator.next());
+          }
+          rows = results;
+        }
+      } finally {
+        // Releases the threads executing the partitions, even when the recipe fails.
+        executor.destroy();
+      }
     }
     return rows;
   }
@@ -16,58 +16,57 @@
 
 package co.cask.wrangler;
 
+import co.cask.directives.JexlHelper;
+import co.cask.directives.RowContext;
 import co.cask.wrangler.api.Row;
-import org.apache.commons.jexl3.scripting.JexlScriptEngine;
-
-import javax.script.Bindings;
-import javax.script.CompiledScript;
-import javax.script.ScriptException;
-import javax.script.SimpleBindings;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
 
 /**
  * A precondition expression that filters data into the directives.
+ *
+ * <p>The expression is compiled once into a {@link JexlScript}, which is evaluated against a
+ * {@link RowContext} over each of the rows, so only the columns the expression reads are looked
+ * up in a row. A precondition is not thread safe, as the context is reused across the rows.</p>
  */
 public class Precondition {
   private final String condition;
-  private final CompiledScript script;
+  private final JexlScript script;
+  private final RowContext context;
 
   public Precondition(String condition) throws PreconditionException {
     this.condition = condition;
-    JexlScriptEngine engine = new JexlScriptEngine();
     try {
-      script = engine.compile(condition);
-    } catch (ScriptException e) {
-      if (e.getCause() != null) {
-        throw new PreconditionException(e.getCause().getMessage());
-      } else {
-        throw new PreconditionException(e.getMessage());
-      }
+      script = JexlHelper.compile(condition);
+    } catch (JexlException e) {
+      throw new PreconditionException(getMessage(e));
     }
+    context = new RowContext(JexlHelper.getVariables(script));
   }
 
   public boolean apply(Row row) throws PreconditionException {
-    Bindings ctx = new SimpleBindings();
-    for (int i = 0; i < row.length(); ++i) {
-      ctx.put(row.getColumn(i), row.getValue(i));
-    }
-
     try {
-      Object result = script.eval(ctx);
+      Object result = script.execute(context.reset(row));
       if (!(result instanceof Boolean)) {
         throw new PreconditionException(
           String.format("Precondition '%s' does not result in true or false.", condition)
         );
       }
       return (Boolean) result;
-    } catch (ScriptException e) {
-      // Generally JexlException wraps the original exception, so it's good idea
-      // to check if there is a inner exception, if there is wrap it in 'DirectiveExecutionException'
-      // else just print the error message.
-      if (e.getCause() != null) {
-        throw new PreconditionException(e.getCause().getMessage());
-      } else {
-        throw new PreconditionException(e.getMessage());
-      }
+    } catch (JexlException e) {
+      throw new PreconditionException(getMessage(e));
+    } finally {
+      context.reset(null);
+    }
+  }
+
+  // Generally JexlException wraps the original exception, so it's good idea
+  // to check if there is a inner exception, if there is use its message
+  // else just use the error message.
+  private static String getMessage(JexlException e) {
+    if (e.getCause() != null) {
+      return e.getCause().getMessage();
     }
+    return e.getMessage();
   }
 }
@@ -37,6 +37,8 @@ import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.DirectiveRegistry;
 import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipeIterator;
 import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.RecipeSymbol;
@@ -51,6 +53,9 @@ import co.cask.wrangler.parser.RecipeCompiler;
 import co.cask.wrangler.registry.CompositeDirectiveRegistry;
 import co.cask.wrangler.registry.SystemDirectiveRegistry;
 import co.cask.wrangler.registry.UserDirectiveRegistry;
+import co.cask.wrangler.utils.FieldDecoder;
+import co.cask.wrangler.utils.RecordConvertorException;
+import com.google.common.collect.Iterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,9 +64,12 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Wrangler - A interactive tool for data data cleansing and transformation.
@@ -85,11 +93,24 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
 
   // Wrangle Execution RecipePipeline
-  private RecipePipeline pipeline;
+  private RecipePipeline<Row, StructuredRecord, ErrorRecord> pipeline;
 
   // Output Schema associated with transform output.
   private Schema oSchema = null;
 
+  // Fields of the output schema, along with where they were last found in the wrangled rows.
+  private OutputField[] outputFields;
+
+  // Lower cased names of the columns written by the recipe, the fields of the output schema not
+  // written are passed through from the input record. Null if the fields are not passed through.
+  private Set<String> writtenColumns;
+
+  // Schema of the input records for which the fields passed through were last worked out.
+  private Schema passThroughSchema;
+
+  // Last row created from an input record, whose columns are reused for the records of the same schema.
+  private Row lastInput;
+
   // Error counter.
   private long errorCounter;
 
@@ -164,6 +185,13 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
         );
       }
 
+      // Check the number of rows fanned out from a record passed to the directives at once.
+      if (!config.containsMacro("fanOutBatchSize") && config.fanOutBatchSize != null && config.fanOutBatchSize < 1) {
+        throw new IllegalArgumentException(
+          String.format("Fan-out batch size should be greater than zero, found %d.", config.fanOutBatchSize)
+        );
+      }
+
       // Check if pre-condition is not null or empty and if so compile expression.
       if(!config.containsMacro("precondition")) {
         if (config.precondition != null && !config.precondition.trim().isEmpty()) {
@@ -230,6 +258,11 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
                       context.getStageName())
       );
     }
+    List<Schema.Field> fields = oSchema.getFields();
+    outputFields = new OutputField[fields.size()];
+    for (int i = 0; i < fields.size(); ++i) {
+      outputFields[i] = new OutputField(fields.get(i));
+    }
 
     // Check if pre-condition is not null or empty and if so compile expression.
     if (config.precondition != null && !config.precondition.trim().isEmpty()) {
@@ -265,9 +298,32 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     }
 
     try {
+      // Only the fields of the output schema are taken from the wrangled rows, so directives
+      // computing other columns can be skipped. This doesn't apply when the record is passed
+      // as a whole, as a row left with just the record is emitted as is.
+      List<String> outputColumns = null;
+      if (!"#".equalsIgnoreCase(config.field)) {
+        outputColumns = new ArrayList<>();
+        for (Schema.Field field : oSchema.getFields()) {
+          outputColumns.add(field.getName());
+        }
+      }
+
       // Create the pipeline executor with context being set.
-      pipeline = new RecipePipelineExecutor();
-      pipeline.initialize(directives, ctx);
+      // Records are passed to the recipe one at a time, so batches only hold the rows generated
+      // from a single record, such as by splitting it.
+      int batchSize = config.fanOutBatchSize == null ? 1 : config.fanOutBatchSize;
+      boolean skipUnusedDirectives = config.skipUnusedDirectives == null || config.skipUnusedDirectives;
+      RecipePipelineExecutor executor = new RecipePipelineExecutor(batchSize, 1, outputColumns,
+                                                                   skipUnusedDirectives);
+      executor.initialize(directives, ctx);
+      pipeline = executor;
+
+      // When wrangling all the fields, the fields of the input record that the recipe doesn't write
+      // come out of the recipe as they came in, so they are passed through to the output record.
+      if ("*".equalsIgnoreCase(config.field)) {
+        writtenColumns = executor.writtenColumns();
+      }
     } catch (Exception e) {
       throw new Exception(
         String.format("Stage:%s - %s", getContext().getStageName(), e.getMessage())
@@ -288,6 +344,11 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   /**
    * Transforms the input record by applying directives on the record being passed.
    *
+   * <p>The wrangled rows are streamed through the recipe and converted to output records as they
+   * are produced, so directives generating many rows from the record don't hold all of them in
+   * memory at once. The output records are only emitted once the recipe is done with the record,
+   * so a record on which the recipe fails is only emitted as an error.</p>
+   *
    * @param input record to be transformed.
    * @param emitter to collect all the output of the transformation.
    * @throws Exception thrown if there are any issue with the transformation.
@@ -295,18 +356,18 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     long start = 0;
-    List<StructuredRecord> records;
     try {
-      // Creates a row as starting point for input to the pipeline.
-      Row row = new Row();
+      // Creates a row as starting point for input to the pipeline. When wrangling all the fields,
+      // the row reads the fields from the input record as the directives use them, so the fields
+      // left untouched by the recipe go straight from the input to the output record.
+      Row row;
       if ("*".equalsIgnoreCase(config.field)) {
-        for (Schema.Field field : input.getSchema().getFields()) {
-          row.add(field.getName(), input.get(field.getName()));
-        }
+        row = lastInput == null ? new Row(input) : new Row(lastInput, input);
+        lastInput = row;
       } else if ("#".equalsIgnoreCase(config.field)) {
-        row.add(input.getSchema().getRecordName(), input);
+        row = new Row(input.getSchema().getRecordName(), input);
       } else {
-        row.add(config.field, input.get(config.field));
+        row = new Row(config.field, input.get(config.field));
       }
 
       // If pre-condition is set, then evaluate the precondition
@@ -322,7 +383,15 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       store.reset();
 
       start = System.nanoTime();
-      records = pipeline.execute(Arrays.asList(row), oSchema);
+      RecipeIterator<Row> rows = pipeline.execute(Iterators.singletonIterator(row));
+      List<StructuredRecord> outputs = new ArrayList<>();
+      while (rows.hasNext()) {
+        outputs.add(toOutputRecord(rows.next(), input));
+      }
+      for (StructuredRecord output : outputs) {
+        emitter.emit(output);
+      }
+
       // We now extract errors from the execution and pass it on to the error emitter.
       List<ErrorRecord> errors = pipeline.errors();
       if (errors.size() > 0) {
@@ -343,28 +412,100 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       // Emit error record, if the Error flattener or error handlers are not connected, then
       // the record is automatically omitted.
       emitter.emitError(new InvalidEntry<>(0, e.getMessage(), input));
-      return;
     } finally {
       getContext().getMetrics().gauge("process.time", System.nanoTime() - start);
     }
+  }
 
-    for (StructuredRecord record : records) {
-      StructuredRecord.Builder builder = StructuredRecord.builder(oSchema);
-      // Iterate through output schema, if the 'record' doesn't have it, then
-      // attempt to take if from 'input'.
-      for (Schema.Field field : oSchema.getFields()) {
-        Object wObject = record.get(field.getName()); // wrangled records
-        if (wObject == null) {
-          builder.set(field.getName(), null);
-        } else {
-          if (wObject instanceof String) {
-            builder.convertAndSet(field.getName(), (String) wObject);
+  /**
+   * Converts a wrangled row into a record of the output schema, decoding each of the fields
+   * of the output schema from the row straight into the output record. The fields passed
+   * through are copied from the input record instead.
+   *
+   * @param row wrangled by the recipe.
+   * @param input record from which the row was wrangled.
+   * @return record to be emitted.
+   */
+  private StructuredRecord toOutputRecord(Row row, StructuredRecord input) throws RecipeException {
+    // A row left with just a record, such as the input record when wrangling it as a whole, is
+    // converted from that record, as done by RecordConvertor.
+    if (row.length() == 1 && row.getValue(0) instanceof StructuredRecord) {
+      return fromRecord((StructuredRecord) row.getValue(0));
+    }
+
+    if (writtenColumns != null) {
+      planPassThrough(input.getSchema());
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(oSchema);
+    for (OutputField field : outputFields) {
+      try {
+        if (field.source != null) {
+          Object value = input.get(field.source);
+          if (field.same) {
+            builder.set(field.name, value);
           } else {
-            builder.set(field.getName(), wObject);
+            set(builder, field, field.decoder.decode(field.name, value));
           }
+          continue;
         }
+        int idx = row.find(field.name, field.slot);
+        field.slot = idx;
+        Object value = field.decoder.decode(field.name, idx == -1 ? null : row.getValue(idx));
+        set(builder, field, value);
+      } catch (RecordConvertorException e) {
+        throw new RecipeException("Problem converting into output record. Reason : " + e.getMessage());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Works out which fields of the output schema are passed through from the input records of
+   * the given schema. A field is passed through if the recipe doesn't write its column and the
+   * input has a field of the same name, which is the field the column would be found from.
+   *
+   * @param schema of the input records.
+   */
+  private void planPassThrough(Schema schema) {
+    if (schema == passThroughSchema || schema.equals(passThroughSchema)) {
+      return;
+    }
+    // Columns are searched ignoring case, finding the first of the fields having the name.
+    Map<String, Schema.Field> inputs = new HashMap<>();
+    for (Schema.Field field : schema.getFields()) {
+      String name = field.getName().toLowerCase();
+      if (!inputs.containsKey(name)) {
+        inputs.put(name, field);
       }
-      emitter.emit(builder.build());
+    }
+    for (OutputField field : outputFields) {
+      String name = field.name.toLowerCase();
+      Schema.Field input = writtenColumns.contains(name) ? null : inputs.get(name);
+      field.source = input == null ? null : input.getName();
+      field.same = input != null && input.getSchema().equals(field.schema);
+    }
+    passThroughSchema = schema;
+  }
+
+  /**
+   * Converts a record left by the recipe into a record of the output schema.
+   *
+   * @param record wrangled by the recipe.
+   * @return record to be emitted.
+   */
+  private StructuredRecord fromRecord(StructuredRecord record) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(oSchema);
+    for (OutputField field : outputFields) {
+      set(builder, field, record.get(field.name));
+    }
+    return builder.build();
+  }
+
+  private static void set(StructuredRecord.Builder builder, OutputField field, Object value) {
+    if (field.simple && value instanceof String) {
+      builder.convertAndSet(field.name, (String) value);
+    } else {
+      builder.set(field.name, value);
     }
   }
 
@@ -410,6 +551,30 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     @Macro
     private final int threshold;
 
+    @Name("fanOutBatchSize")
+    @Description("Maximum number of the rows generated from a single input record, such as by splitting it, " +
+      "passed to each directive at once. Input records are always wrangled one at a time, so this only " +
+      "applies to the directives following one that fans a record out into many rows. Defaults to 1.")
+    @Macro
+    @Nullable
+    private Integer fanOutBatchSize;
+
+    @Name("skipUnusedDirectives")
+    @Description("Whether directives only computing columns that are not used afterwards, as the columns are " +
+      "dropped later in the recipe or are not part of the output schema, are skipped. Only directives that " +
+      "cannot fail, such as changing the case of a column, are skipped. Defaults to true.")
+    @Macro
+    @Nullable
+    private Boolean skipUnusedDirectives;
+
+    @Name("compileExpressions")
+    @Description("Whether the expressions of the directives, such as 'set-column' and 'filter-row-if-true', are " +
+      "compiled instead of being interpreted, when they only use operators, literals, columns and method calls. " +
+      "Defaults to false.")
+    @Macro
+    @Nullable
+    private Boolean compileExpressions;
+
     @Name("schema")
     @Description("Specifies the schema that has to be output.")
     @Macro
@@ -423,5 +588,29 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       this.schema = schema;
     }
   }
-}
 
+  /**
+   * Field of the output schema, remembering the position at which it was found in the last row
+   * converted, as the rows generated by a recipe mostly have the same columns.
+   */
+  private static final class OutputField {
+    private final String name;
+    private final Schema schema;
+    private final FieldDecoder decoder;
+    // Set if the field holds a simple type, which strings are converted into.
+    private final boolean simple;
+    private int slot = -1;
+    // Name of the input field passed through to this field, null if taken from the wrangled rows.
+    private String source;
+    // Set if the input field passed through has the schema of this field, so it's copied as is.
+    private boolean same;
+
+    private OutputField(Schema.Field field) {
+      Schema schema = field.getSchema();
+      this.name = field.getName();
+      this.schema = schema;
+      this.decoder = FieldDecoder.of(schema);
+      this.simple = schema.getType().isSimpleType() || schema.isNullableSimple();
+    }
+  }
+}
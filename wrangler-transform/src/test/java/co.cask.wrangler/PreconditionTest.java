@@ -34,6 +34,19 @@ public class PreconditionTest {
     Assert.assertEquals(false, new Precondition("false").apply(row));
   }
 
+  @Test
+  public void testPreconditionOnDifferentRows() throws Exception {
+    Precondition precondition = new Precondition("x = a + 1; x > 2");
+    Assert.assertEquals(false, precondition.apply(new Row("a", 1)));
+    Assert.assertEquals(true, precondition.apply(new Row("b", 0).add("a", 5)));
+    Assert.assertEquals(false, precondition.apply(new Row("a", 0).add("x", 10)));
+  }
+
+  @Test(expected = PreconditionException.class)
+  public void testMissingColumn() throws Exception {
+    new Precondition("d == 1").apply(new Row("a", 1));
+  }
+
   @Test(expected = PreconditionException.class)
   public void testBadCondition() throws Exception {
     Row row = new Row("a", 1).add("b", "x").add("c", 2.06);